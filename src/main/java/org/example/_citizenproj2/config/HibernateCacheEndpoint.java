@@ -0,0 +1,69 @@
+package org.example._citizenproj2.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// /actuator/hibernatecache：各二級快取區域的命中統計，DELETE 可清除區域
+// 參考資料在資料庫外被修改時（例如直接調整影廳座位）以此清除
+// 命中率等指標另由 hibernate-micrometer 發佈在 /actuator/metrics 的 hibernate.* 之下
+@Component
+@Endpoint(id = "hibernatecache")
+@RequiredArgsConstructor
+public class HibernateCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public Map<String, Object> regions() {
+        Statistics statistics = sessionFactory().getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+            regions.put(region, Map.of(
+                    "hits", stats.getHitCount(),
+                    "misses", stats.getMissCount(),
+                    "puts", stats.getPutCount(),
+                    "entries", stats.getElementCountInMemory()
+            ));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("regions", regions);
+        result.put("queryCache", Map.of(
+                "hits", statistics.getQueryCacheHitCount(),
+                "misses", statistics.getQueryCacheMissCount(),
+                "puts", statistics.getQueryCachePutCount()
+        ));
+        result.put("updateTimestamps", Map.of(
+                "hits", statistics.getUpdateTimestampsCacheHitCount(),
+                "misses", statistics.getUpdateTimestampsCacheMissCount(),
+                "puts", statistics.getUpdateTimestampsCachePutCount()
+        ));
+        return result;
+    }
+
+    @DeleteOperation
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+    }
+
+    @DeleteOperation
+    public void evictRegion(@Selector String region) {
+        sessionFactory().getCache().evictRegion(region);
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
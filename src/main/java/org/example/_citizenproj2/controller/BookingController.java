@@ -3,12 +3,21 @@ package org.example._citizenproj2.controller;
 import lombok.RequiredArgsConstructor;
 import org.example._citizenproj2.dto.request.BookingRequest;
 import org.example._citizenproj2.dto.request.GroupBookingRequest;
+import org.example._citizenproj2.dto.request.SeatHoldRequest;
+import org.example._citizenproj2.dto.response.BestSeatsResponse;
 import org.example._citizenproj2.dto.response.BookingResponse;
+import org.example._citizenproj2.dto.response.SeatHoldResponse;
+import org.example._citizenproj2.dto.response.SeatMapResponse;
 import org.example._citizenproj2.exception.SeatNotAvailableException;
 import org.example._citizenproj2.service.BookingService;
+import org.example._citizenproj2.service.IdempotencyService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -21,11 +30,29 @@ import java.util.Map;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody BookingRequest request) {
-        return ResponseEntity.ok(bookingService.createBooking(request));
+    public ResponseEntity<BookingResponse> createBooking(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody BookingRequest request) {
+        return ResponseEntity.ok(idempotencyService.execute(
+                "booking:" + request.getMemberId(), idempotencyKey, request, BookingResponse.class,
+                () -> bookingService.createBooking(request)));
+    }
+
+    @PostMapping("/holds")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SeatHoldResponse> holdSeats(@Valid @RequestBody SeatHoldRequest request) {
+        return ResponseEntity.ok(bookingService.holdSeats(request));
+    }
+
+    @DeleteMapping("/holds/{holdToken}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> releaseHold(@PathVariable String holdToken) {
+        bookingService.releaseHold(holdToken);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/{bookingId}")
@@ -54,6 +81,33 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getAvailableSeats(showingId));
     }
 
+    @GetMapping("/showing/{showingId}/seat-map")
+    public ResponseEntity<SeatMapResponse> getSeatMap(
+            @PathVariable Long showingId,
+            @RequestParam(required = false) Long epoch,
+            @RequestParam(required = false) Long sinceVersion,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        SeatMapResponse seatMap = bookingService.getSeatMap(showingId, epoch, sinceVersion);
+        String eTag = "\"" + seatMap.getEpoch() + "-" + seatMap.getVersion() + "\"";
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(seatMap);
+    }
+
+    @GetMapping(value = "/showing/{showingId}/seat-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatEvents(@PathVariable Long showingId) {
+        return bookingService.subscribeSeatEvents(showingId);
+    }
+
+    @GetMapping("/showing/{showingId}/best-seats")
+    public ResponseEntity<BestSeatsResponse> findBestSeats(
+            @PathVariable Long showingId,
+            @RequestParam int count,
+            @RequestParam(required = false) String seatType) {
+        return ResponseEntity.ok(bookingService.findBestSeats(showingId, count, seatType));
+    }
+
     @PostMapping("/verify-seats")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Boolean> verifySeatsAvailability(
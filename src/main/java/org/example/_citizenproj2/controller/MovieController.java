@@ -5,6 +5,7 @@ import org.example._citizenproj2.dto.request.MovieRequest;
 import org.example._citizenproj2.dto.request.RatingRequest;
 import org.example._citizenproj2.dto.response.MovieResponse;
 import org.example._citizenproj2.dto.response.RatingResponse;
+import org.example._citizenproj2.dto.response.SuggestionResponse;
 import org.example._citizenproj2.exception.MovieNotFoundException;
 import org.example._citizenproj2.model.Movie;
 import org.example._citizenproj2.service.MovieService;
@@ -122,6 +123,13 @@ public class MovieController {
         return ResponseEntity.ok(movieService.searchMovies(keyword, director, status, categoryId, pageable));
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(movieService.suggest(q, limit));
+    }
+
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MovieResponse> updateMovieStatus(
@@ -5,16 +5,23 @@ import org.example._citizenproj2.dto.request.TransferRequest;
 import org.example._citizenproj2.exception.InsufficientBalanceException;
 import org.example._citizenproj2.exception.WalletNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.example._citizenproj2.dto.response.TransactionHistoryResponse;
 import org.example._citizenproj2.dto.response.TransactionResponse;
 import org.example._citizenproj2.dto.response.WalletResponse;
+import org.example._citizenproj2.service.IdempotencyService;
 import org.example._citizenproj2.service.WalletService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/wallets")
@@ -23,6 +30,7 @@ import java.util.List;
 public class WalletController {
 
     private final WalletService walletService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping("/{memberId}")
     @PreAuthorize("isAuthenticated()")
@@ -34,8 +42,11 @@ public class WalletController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<TransactionResponse> deposit(
             @PathVariable Long walletId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody TransactionRequest request) {
-        return ResponseEntity.ok(walletService.deposit(walletId, request));
+        return ResponseEntity.ok(idempotencyService.execute(
+                "deposit:" + walletId, idempotencyKey, request, TransactionResponse.class,
+                () -> walletService.deposit(walletId, request)));
     }
 
     @PostMapping("/{walletId}/withdraw")
@@ -55,6 +66,15 @@ public class WalletController {
         return ResponseEntity.ok(walletService.getTransactions(walletId, page, size));
     }
 
+    @GetMapping("/{walletId}/transactions/history")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<TransactionHistoryResponse> getTransactionHistory(
+            @PathVariable Long walletId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(walletService.getTransactionHistory(walletId, cursor, Math.min(Math.max(size, 1), 100)));
+    }
+
     @GetMapping("/{walletId}/balance")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<BigDecimal> getBalance(@PathVariable Long walletId) {
@@ -65,8 +85,11 @@ public class WalletController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<TransactionResponse> transfer(
             @PathVariable Long walletId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
-        return ResponseEntity.ok(walletService.transfer(walletId, request));
+        return ResponseEntity.ok(idempotencyService.execute(
+                "transfer:" + walletId, idempotencyKey, request, TransactionResponse.class,
+                () -> walletService.transfer(walletId, request)));
     }
 
     @PutMapping("/{walletId}/status")
@@ -86,6 +109,58 @@ public class WalletController {
         return ResponseEntity.ok(walletService.getStatement(walletId, startDate, endDate));
     }
 
+    @GetMapping("/{walletId}/statistics")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Map<String, Object>> getStatistics(@PathVariable Long walletId) {
+        return ResponseEntity.ok(walletService.getWalletStatistics(walletId));
+    }
+
+    @GetMapping("/{walletId}/statistics/daily")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<Map<String, Object>>> getDailyStatistics(
+            @PathVariable Long walletId,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        return ResponseEntity.ok(walletService.getDailyStatistics(walletId, startDate, endDate));
+    }
+
+    @GetMapping("/{walletId}/statistics/types")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<Map<String, Object>>> getTypeStatistics(
+            @PathVariable Long walletId,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        return ResponseEntity.ok(walletService.getTypeStatistics(walletId, startDate, endDate));
+    }
+
+    @GetMapping("/{walletId}/audit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> auditWallet(@PathVariable Long walletId) {
+        return ResponseEntity.ok(walletService.auditWallet(walletId));
+    }
+
+    // 串流匯出對帳單，format 為 csv 或 ndjson
+    @GetMapping("/{walletId}/statement/export")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            @PathVariable Long walletId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        WalletService.StatementFormat statementFormat = WalletService.StatementFormat.valueOf(format.toUpperCase());
+        MediaType mediaType = statementFormat == WalletService.StatementFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.parseMediaType("application/x-ndjson");
+        String filename = String.format("statement-%d-%s-%s.%s",
+                walletId, startDate, endDate, format.toLowerCase());
+
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(outputStream -> walletService.exportStatement(
+                        walletId, startDate, endDate, statementFormat, outputStream));
+    }
+
     @ExceptionHandler(InsufficientBalanceException.class)
     public ResponseEntity<String> handleInsufficientBalanceException(InsufficientBalanceException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
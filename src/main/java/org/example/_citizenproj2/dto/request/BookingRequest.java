@@ -31,6 +31,9 @@ public class BookingRequest {
 
     private String paymentMethod;
 
+    // 先前取得的座位保留憑證
+    private String holdToken;
+
     // 用於團體訂票
     private Boolean isGroupBooking;
     private Integer minMembers;
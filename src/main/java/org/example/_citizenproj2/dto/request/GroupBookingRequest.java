@@ -21,9 +21,11 @@ public class GroupBookingRequest {
     @NotNull(message = "團體領導人ID不能為空")
     private Long organizerId;
 
+    @NotNull(message = "最小人數不能為空")
     @Min(value = 2, message = "最小人數不能少於2人")
     private Integer minMembers;
 
+    @NotNull(message = "最大人數不能為空")
     @Max(value = 20, message = "最大人數不能超過20人")
     private Integer maxMembers;
 
@@ -0,0 +1,31 @@
+package org.example._citizenproj2.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldRequest {
+
+    @NotNull(message = "會員ID不能為空")
+    private Long memberId;
+
+    @NotNull(message = "場次ID不能為空")
+    private Long showingId;
+
+    @NotEmpty(message = "座位不能為空")
+    private List<Long> seatIds;
+
+    // 保留秒數，未指定時使用 app.booking.expiration.minutes
+    @Min(value = 1, message = "保留時間必須大於0")
+    private Long ttlSeconds;
+}
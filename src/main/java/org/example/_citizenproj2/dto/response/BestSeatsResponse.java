@@ -0,0 +1,20 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BestSeatsResponse {
+    private Long showingId;
+    private Integer requestedSeats;
+    private String seatType;
+    private List<Long> seatIds;
+    private List<String> seatNumbers;
+}
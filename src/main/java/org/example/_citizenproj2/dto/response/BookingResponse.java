@@ -28,6 +28,7 @@ public class BookingResponse {
     private List<SeatInfo> seatDetails;
     private PaymentDetails paymentDetails;
     private DiscountInfo discountInfo;
+    private GroupBookingInfo groupBookingInfo;
 
     @Data
     @Builder
@@ -12,7 +12,7 @@ import java.util.Date;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class MovieResponse {
@@ -40,7 +40,7 @@ public class MovieResponse {
     private List<String> genres;
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class ShowingInfo {
         private Integer totalShowings;
         private Integer availableShowings;
@@ -56,7 +56,7 @@ public class MovieResponse {
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class RatingInfo {
         private Double averageRating;
         private Integer totalRatings;
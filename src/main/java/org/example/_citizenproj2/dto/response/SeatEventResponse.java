@@ -0,0 +1,26 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatEventResponse {
+    private Long showingId;
+    private EventType eventType;
+    private List<Long> seatIds;
+
+    // 對應座位地圖的 epoch/version，可直接接續增量查詢
+    private Long epoch;
+    private Long version;
+
+    public enum EventType {
+        CLAIMED, RELEASED
+    }
+}
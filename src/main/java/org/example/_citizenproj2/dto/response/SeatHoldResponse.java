@@ -0,0 +1,21 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatHoldResponse {
+    private String holdToken;
+    private Long memberId;
+    private Long showingId;
+    private List<Long> seatIds;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,42 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 座位地圖的精簡編碼
+// layout：每個格位一個字元，R/V/C/D 對應 SeatType，小寫表示座位非 ACTIVE，'.' 表示沒有座位
+// occupancy：佔用位元的 Base64，第 i 個格位為第 i/8 個位元組的第 i%8 個位元
+// 格位索引 = 排索引 * columns + (columnNumber - 1)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapResponse {
+    private Long showingId;
+    private Long epoch;
+    private Long version;
+    private Boolean full;
+
+    // 完整地圖
+    private Integer rows;
+    private Integer columns;
+    private List<String> rowLabels;
+    private String layout;
+    private String occupancy;
+
+    // 增量更新
+    private List<SeatChange> changes;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeatChange {
+        private Integer index;
+        private Boolean booked;
+    }
+}
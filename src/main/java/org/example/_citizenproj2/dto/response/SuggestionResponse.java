@@ -0,0 +1,22 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+    private String text;
+    private SuggestionType type;
+
+    // 電影名稱的建議才有
+    private Long movieId;
+
+    public enum SuggestionType {
+        MOVIE, DIRECTOR, CAST
+    }
+}
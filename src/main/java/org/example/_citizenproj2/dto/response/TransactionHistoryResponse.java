@@ -0,0 +1,21 @@
+package org.example._citizenproj2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 交易歷史的游標分頁，不提供總筆數
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryResponse {
+    private List<TransactionResponse> transactions;
+
+    // 下一頁的游標，沒有更多資料時為 null
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -61,6 +61,12 @@ public class CustomException extends RuntimeException {
         }
     }
 
+    public static class IdempotencyConflictException extends CustomException {
+        public IdempotencyConflictException(String message, String errorCode) {
+            super(HttpStatus.CONFLICT, message, errorCode);
+        }
+    }
+
     public static class AuthenticationException extends CustomException {
         public AuthenticationException(String message) {
             super(HttpStatus.UNAUTHORIZED, message, "AUTHENTICATION_FAILED");
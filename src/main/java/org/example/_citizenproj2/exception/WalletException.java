@@ -4,6 +4,9 @@ import org.springframework.http.HttpStatus;
 
 public class WalletException extends CustomException {
 
+    // 樂觀更新的版本衝突，可整筆重試
+    public static final String CONFLICT = "WALLET_CONFLICT";
+
     public WalletException(String message) {
         super(HttpStatus.BAD_REQUEST, message, "WALLET_ERROR");
     }
@@ -39,6 +42,13 @@ public class WalletException extends CustomException {
         );
     }
 
+    public static WalletException walletConflict() {
+        return new WalletException(
+                "錢包更新衝突，請稍後再試",
+                CONFLICT
+        );
+    }
+
     public static WalletException exceedDailyLimit() {
         return new WalletException(
                 "超過每日交易限額",
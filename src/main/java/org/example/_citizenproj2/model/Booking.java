@@ -21,11 +21,11 @@ public class Booking {
     @Id
     private String bookingId;  // 自定義格式的訂單編號
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id", nullable = false)
     private Member member;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "showing_id", nullable = false)
     private Showing showing;
 
@@ -16,16 +16,25 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class BookingDetail {
     public static Level tickettype;
+    private static final BigDecimal VIP_MULTIPLIER = new BigDecimal("1.2");
+
+    // 使用序列配置 ID，IDENTITY 會讓 Hibernate 無法批次寫入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_detail_seq")
+    @SequenceGenerator(name = "booking_detail_seq", sequenceName = "booking_details_seq", allocationSize = 25)
     private Long bookingDetailId;
 
-    @ManyToOne
+    // 訂單與座位都持有明細集合，不納入 equals/hashCode，避免 flush 比對明細時互相遞迴
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booking_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Booking booking;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seat_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Seat seat;
 
     @Enumerated(EnumType.STRING)
@@ -63,21 +72,24 @@ public class BookingDetail {
 
     // 計算票價的方法
     public void calculateTicketPrice() {
-        // 基本票價
-        BigDecimal basePrice = booking.getShowing().getBasePrice();
+        this.ticketPrice = priceOf(booking.getShowing().getBasePrice(), ticketType, seat.getSeatType());
+    }
 
+    public static BigDecimal priceOf(BigDecimal basePrice, TicketType ticketType, Seat.SeatType seatType) {
         // 使用票種倍數計算
-        this.ticketPrice = basePrice.multiply(ticketType.getPriceMultiplier());
+        BigDecimal price = basePrice.multiply(ticketType.getPriceMultiplier());
 
         // 如果是VIP座位，增加價格
-        if (seat.getSeatType() == Seat.SeatType.VIP) {
-            this.ticketPrice = this.ticketPrice.multiply(new BigDecimal("1.2"));
+        if (seatType == Seat.SeatType.VIP) {
+            price = price.multiply(VIP_MULTIPLIER);
         }
+        return price;
     }
 
     // 驗證座位是否可用
+    // 同場次重複訂位由 seat_reservations 的 (showing_id, seat_id) 唯一鍵保證，不在此走訪訂單
     public boolean validateSeat() {
-        return seat.isAvailable() && !isAlreadyBooked();
+        return seat.isAvailable();
     }
 
     // 驗證票種是否適用
@@ -95,24 +107,16 @@ public class BookingDetail {
         };
     }
 
-    private boolean isAlreadyBooked() {
-        if (booking == null || booking.getShowing() == null) {
-            return false;
-        }
-
-        return booking.getShowing().getBookings().stream()
-                .filter(b -> b.getBookingStatus() != Booking.BookingStatus.CANCELLED)
-                .flatMap(b -> b.getBookingDetails().stream())
-                .anyMatch(detail -> detail.getSeat().equals(this.seat));
-    }
-
     // 預處理方法
     @PrePersist
     public void prePersist() {
         if (ticketType == null) {
             ticketType = TicketType.ADULT;
         }
-        calculateTicketPrice();
+        // 由服務層預先計算的票價不再重算
+        if (ticketPrice == null) {
+            calculateTicketPrice();
+        }
     }
 
     // 取得票價描述
@@ -0,0 +1,57 @@
+package org.example._citizenproj2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// 冪等請求的第一次結果，主鍵為「範圍:冪等鍵」，與業務資料在同一交易中寫入
+@Entity
+@Table(name = "idempotency_records",
+        indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expiresAt"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord implements Persistable<String> {
+    @Id
+    @Column(length = 160)
+    private String recordKey;
+
+    // 請求內容的 SHA-256，同一個鍵搭配不同內容時拒絕
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newRecord = true;
+
+    @Override
+    public String getId() {
+        return recordKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.newRecord = false;
+    }
+}
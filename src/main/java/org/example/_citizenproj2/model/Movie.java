@@ -53,7 +53,7 @@ public class Movie {
     public List<Showing> getShowings() {
         return showings;
     }
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private MovieCategory category;
 
@@ -2,6 +2,8 @@ package org.example._citizenproj2.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -11,6 +13,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "seats")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "seat")
 @Data
 @Builder
 @NoArgsConstructor
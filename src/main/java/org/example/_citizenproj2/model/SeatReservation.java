@@ -0,0 +1,40 @@
+package org.example._citizenproj2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// 場次座位的佔用紀錄，(showing_id, seat_id) 唯一鍵由資料庫保證同一座位只能被一筆有效訂單持有
+// 訂單取消時刪除對應紀錄
+@Entity
+@Table(name = "seat_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_seat_reservation_showing_seat",
+                columnNames = {"showing_id", "seat_id"}),
+        indexes = @Index(name = "idx_seat_reservation_booking", columnList = "booking_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_reservation_seq")
+    @SequenceGenerator(name = "seat_reservation_seq", sequenceName = "seat_reservations_seq", allocationSize = 25)
+    private Long reservationId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "showing_id", nullable = false)
+    private Showing showing;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seat_id", nullable = false)
+    private Seat seat;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", nullable = false)
+    private Booking booking;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -3,24 +3,32 @@ package org.example._citizenproj2.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// 帳本紀錄只新增不修改
 @Entity
-@Table(name = "transactions")
+@Immutable
+@Table(name = "transactions",
+        indexes = {
+                @Index(name = "idx_transaction_wallet_version", columnList = "wallet_id, wallet_version"),
+                @Index(name = "idx_transaction_wallet_time", columnList = "wallet_id, transactionTime, transactionId")
+        })
 @Data  // 已有，但確保存在
 @Getter // 明確添加
 @Setter // 明確添加
 @NoArgsConstructor
 @AllArgsConstructor
-public class Transaction {
+public class Transaction implements Persistable<String> {
     @Id
     @Column(length = 50)
     private String transactionId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "wallet_id", nullable = false)
     private Wallet wallet;
 
@@ -30,6 +38,10 @@ public class Transaction {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal balance;
 
+    // 寫入此筆交易後的錢包版本，作為帳本序號
+    @Column(name = "wallet_version")
+    private Long walletVersion;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private TransactionType transactionType;
@@ -60,6 +72,12 @@ public class Transaction {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // 交易編號由程式指定，以此判斷是否為新紀錄，save 時直接 INSERT 而不先 SELECT 再 merge
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newTransaction = true;
+
     public enum TransactionType {
         DEPOSIT, WITHDRAWAL, PAYMENT, REFUND, TRANSFER_IN, TRANSFER_OUT, ADJUSTMENT
     }
@@ -72,6 +90,22 @@ public class Transaction {
         PENDING, VERIFIED, FAILED
     }
 
+    @Override
+    public String getId() {
+        return transactionId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newTransaction;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.newTransaction = false;
+    }
+
     // 業務方法
     public boolean isSuccess() {
         return status == Status.COMPLETED;
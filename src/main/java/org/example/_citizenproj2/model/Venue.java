@@ -2,6 +2,8 @@ package org.example._citizenproj2.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,6 +14,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "venues")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "venue")
 @Data  // 已有，但確保存在
 @Getter // 明確添加
 @Setter // 明確添加
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -24,8 +27,11 @@ public class Wallet {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long walletId;
 
+    // 會員也持有錢包，不納入 equals/hashCode 以免互相遞迴
     @OneToOne
     @JoinColumn(name = "member_id", nullable = false, unique = true)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Member member;
 
     @Column(nullable = false, precision = 15, scale = 2)
@@ -43,6 +49,13 @@ public class Wallet {
 
     private LocalDateTime lastTransactionTime;
 
+    // 餘額以條件式 UPDATE 寫入時比對的版本
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
     @OneToMany(mappedBy = "wallet", cascade = CascadeType.ALL)
     private List<Transaction> transactions = new ArrayList<>();
 
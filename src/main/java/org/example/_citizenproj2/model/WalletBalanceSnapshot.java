@@ -0,0 +1,39 @@
+package org.example._citizenproj2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// 錢包餘額快照：截至 walletVersion 為止帳本累計的餘額
+// 重建餘額只需讀最新快照與其後的交易
+@Entity
+@Table(name = "wallet_balance_snapshots",
+        indexes = @Index(name = "idx_snapshot_wallet_version", columnList = "wallet_id, wallet_version"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long snapshotId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "wallet_version", nullable = false)
+    private Long walletVersion;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+
+    // 此快照涵蓋的交易筆數
+    @Column(nullable = false)
+    private Long transactionCount;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,75 @@
+package org.example._citizenproj2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// 高流量錢包的待入帳項目，與扣款或取消在同一交易中寫入
+// WalletMailbox 套用餘額時新增 COMPLETED 交易紀錄並刪除此列，帳本本身維持只新增不修改
+@Entity
+@Table(name = "wallet_credits",
+        indexes = @Index(name = "idx_wallet_credit_status", columnList = "status, createdAt"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletCredit implements Persistable<String> {
+    // 即入帳後交易紀錄的編號
+    @Id
+    @Column(length = 50)
+    private String creditId;
+
+    @Column(nullable = false)
+    private Long walletId;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionType transactionType;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(length = 100)
+    private String referenceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newCredit = true;
+
+    public enum Status {
+        PENDING, FAILED
+    }
+
+    @Override
+    public String getId() {
+        return creditId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newCredit;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.newCredit = false;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example._citizenproj2.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// 錢包交易統計彙總，依 (錢包, 日期, 交易類型) 累計，與交易紀錄在同一交易中更新
+// statDate 為 ALL_TIME 的列是該錢包的累計總和（唯一鍵中的 NULL 不會互相衝突，故不用 NULL）
+@Entity
+@Table(name = "wallet_statistics",
+        uniqueConstraints = @UniqueConstraint(name = "uk_wallet_statistics",
+                columnNames = {"wallet_id", "stat_date", "transaction_type"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletStatistics {
+    public static final LocalDate ALL_TIME = LocalDate.of(1970, 1, 1);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long statisticsId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false, length = 20)
+    private Transaction.TransactionType transactionType;
+
+    @Column(nullable = false)
+    private Long transactionCount;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal minAmount;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal maxAmount;
+}
@@ -0,0 +1,9 @@
+package org.example._citizenproj2.repository;
+
+import org.example._citizenproj2.model.BookingDetail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BookingDetailRepository extends JpaRepository<BookingDetail, Long> {
+}
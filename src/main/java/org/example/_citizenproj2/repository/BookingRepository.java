@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -78,6 +79,31 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
             "AND b.bookingTime < :expiryTime")
     int cancelExpiredBookings(@Param("expiryTime") LocalDateTime expiryTime);
 
+    // 依訂單編號批次取消仍未付款的訂單
+    @Modifying
+    @Query("UPDATE Booking b SET b.bookingStatus = 'CANCELLED' " +
+            "WHERE b.bookingId IN :bookingIds " +
+            "AND b.bookingStatus = 'PENDING'")
+    int cancelPendingBookings(@Param("bookingIds") Collection<String> bookingIds);
+
+    // 尚未過期的待付款訂單
+    @Query("SELECT new map(" +
+            "b.bookingId as bookingId, " +
+            "b.showing.showingId as showingId, " +
+            "b.bookingTime as bookingTime) " +
+            "FROM Booking b " +
+            "WHERE b.bookingStatus = 'PENDING' " +
+            "AND b.bookingTime >= :since")
+    List<Map<String, Object>> findPendingBookings(@Param("since") LocalDateTime since);
+
+    @Query("SELECT new map(" +
+            "bd.booking.bookingId as bookingId, " +
+            "bd.seat.seatId as seatId) " +
+            "FROM BookingDetail bd " +
+            "WHERE bd.booking.bookingStatus = 'PENDING' " +
+            "AND bd.booking.bookingTime >= :since")
+    List<Map<String, Object>> findPendingBookingSeats(@Param("since") LocalDateTime since);
+
     // 查詢熱門場次
     @Query("SELECT new map(" +
             "b.showing.showingId as showingId, " +
@@ -134,4 +160,13 @@ public interface BookingRepository extends JpaRepository<Booking, String> {
     List<Map<String, Object>> getDailyBookingStatistics(
             @Param("startTime") LocalDateTime startTime,
             @Param("endTime") LocalDateTime endTime);
-}
\ No newline at end of file
+
+    // 各電影的有效訂單數，作為搜尋建議的熱門度
+    @Query("SELECT new map(" +
+            "b.showing.movie.movieId as movieId, " +
+            "COUNT(b) as bookingCount) " +
+            "FROM Booking b " +
+            "WHERE b.bookingStatus <> 'CANCELLED' " +
+            "GROUP BY b.showing.movie.movieId")
+    List<Map<String, Object>> countBookingsByMovie();
+}
@@ -1,6 +1,9 @@
 package org.example._citizenproj2.repository;
 
 import org.example._citizenproj2.model.Member;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -24,8 +27,15 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
 
     boolean existsByPhone(String phone);
 
+    // 錢包與市民卡是一對一的反向端，無法延遲載入，列表時以 JOIN 一次帶出
+    @Override
+    @EntityGraph(attributePaths = {"wallet", "citizenCard"})
+    Page<Member> findAll(Pageable pageable);
+
     List<Member> findByIsActiveTrue();
 
+    boolean existsByMemberIdAndIsActiveTrue(Long memberId);
+
     // 複合查詢
     @Query("SELECT m FROM Member m WHERE m.isActive = true AND m.isVerified = true")
     List<Member> findActiveAndVerifiedMembers();
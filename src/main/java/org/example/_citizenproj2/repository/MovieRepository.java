@@ -3,6 +3,7 @@ package org.example._citizenproj2.repository;
 import org.example._citizenproj2.model.Movie;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,15 +27,24 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
 
     boolean existsByMovieName(String movieName);
 
+    // 回應需要類別名稱，類別與電影一次載入
+    @EntityGraph(attributePaths = "category")
+    Optional<Movie> findWithCategoryByMovieId(Long movieId);
+
+    @EntityGraph(attributePaths = "category")
+    List<Movie> findWithCategoryByMovieIdIn(Collection<Long> movieIds);
+
     // 狀態計數
     long countByMovieStatus(Movie.MovieStatus status);
 
     // 複合查詢
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT m FROM Movie m WHERE m.movieStatus = 'SHOWING' " +
             "AND m.releaseDate <= CURRENT_DATE")
     Page<Movie> findCurrentlyShowingMovies(Pageable pageable);
 
     // 自定義查詢
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT m FROM Movie m WHERE m.category.categoryId = :categoryId")
     Page<Movie> findMoviesByCategory(@Param("categoryId") Long categoryId, Pageable pageable);
 
@@ -46,20 +57,28 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     @Query("SELECT COUNT(m) FROM Movie m WHERE m.releaseDate BETWEEN :startDate AND :endDate")
     long countMoviesInPeriod(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
-    // 複雜搜尋
+    // 搜尋建議只需要名稱欄位，不載入類別
+    @Query("SELECT new map(" +
+            "m.movieId as movieId, " +
+            "m.movieName as movieName, " +
+            "m.originalName as originalName, " +
+            "m.director as director, " +
+            "m.cast as cast) " +
+            "FROM Movie m WHERE m.movieStatus <> 'ENDED'")
+    List<java.util.Map<String, Object>> findSuggestionSources();
+
+    // 條件篩選，關鍵字搜尋由 MovieSearchIndex 處理
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT m FROM Movie m WHERE " +
-            "(:name IS NULL OR m.movieName LIKE %:name%) AND " +
-            "(:director IS NULL OR m.director LIKE %:director%) AND " +
             "(:status IS NULL OR m.movieStatus = :status) AND " +
             "(:categoryId IS NULL OR m.category.categoryId = :categoryId)")
-    Page<Movie> searchMovies(
-            @Param("name") String name,
-            @Param("director") String director,
+    Page<Movie> findByFilters(
             @Param("status") Movie.MovieStatus status,
             @Param("categoryId") Long categoryId,
             Pageable pageable);
 
     // 即將上映電影
+    @EntityGraph(attributePaths = "category")
     @Query("SELECT m FROM Movie m WHERE m.releaseDate > CURRENT_DATE " +
             "ORDER BY m.releaseDate ASC")
     Page<Movie> findUpcomingMovies(Pageable pageable);
@@ -94,14 +113,6 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
             Movie.MovieStatus status,
             Pageable pageable);
 
-    // 關鍵字搜索
-    @Query("SELECT m FROM Movie m WHERE " +
-            "LOWER(m.movieName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(m.originalName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(m.director) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(m.cast) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    Page<Movie> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
-
     // 統計分析
     @Query("SELECT new map(" +
             "m.movieStatus as status, " +
@@ -127,34 +138,21 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
             @Param("sortBy") String sortBy,
             Pageable pageable);
 
-    // 評論相關查詢
-    @Query("SELECT m FROM Movie m LEFT JOIN FETCH m.comments " +
-            "WHERE m.movieId = :movieId")
-    Optional<Movie> findMovieWithComments(@Param("movieId") Long movieId);
-
-    @Query("SELECT COUNT(c) FROM Movie m JOIN m.comments c " +
-            "WHERE m.movieId = :movieId")
-    long getCommentCount(@Param("movieId") Long movieId);
-
-    // 修改評論相關查詢為評分相關查詢
-    @Query("SELECT m FROM Movie m LEFT JOIN FETCH m.ratings " +
-            "WHERE m.movieId = :movieId")
-    Optional<Movie> findMovieWithRatings(@Param("movieId") Long movieId);
-
-    @Query("SELECT COUNT(r) FROM Movie m JOIN m.ratings r " +
-            "WHERE m.movieId = :movieId")
+    // 評分相關查詢，Movie 沒有評分集合，直接查詢 Rating
+    @Query("SELECT COUNT(r) FROM Rating r " +
+            "WHERE r.movie.movieId = :movieId")
     long getRatingCount(@Param("movieId") Long movieId);
 
     // 添加評分統計相關查詢
-    @Query("SELECT AVG(r.rating) FROM Movie m JOIN m.ratings r " +
-            "WHERE m.movieId = :movieId")
+    @Query("SELECT AVG(r.rating) FROM Rating r " +
+            "WHERE r.movie.movieId = :movieId")
     Double getAverageRating(@Param("movieId") Long movieId);
 
     @Query("SELECT new map(" +
             "r.rating as score, " +
             "COUNT(r) as count) " +
-            "FROM Movie m JOIN m.ratings r " +
-            "WHERE m.movieId = :movieId " +
+            "FROM Rating r " +
+            "WHERE r.movie.movieId = :movieId " +
             "GROUP BY r.rating " +
             "ORDER BY r.rating DESC")
     List<java.util.Map<String, Object>> getRatingDistribution(@Param("movieId") Long movieId);
@@ -1,10 +1,13 @@
 package org.example._citizenproj2.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example._citizenproj2.model.Seat;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,7 +16,11 @@ import java.util.List;
 @Repository
 public interface SeatRepository extends JpaRepository<Seat, Long> {
 
-    // 基本查詢
+    // 基本查詢，影廳座位幾乎不變，結果放入查詢快取
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "seat-queries")
+    })
     List<Seat> findByVenueVenueId(Long venueId);
 
     List<Seat> findBySeatType(Seat.SeatType seatType);
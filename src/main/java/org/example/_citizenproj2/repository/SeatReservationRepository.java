@@ -0,0 +1,32 @@
+package org.example._citizenproj2.repository;
+
+import org.example._citizenproj2.model.SeatReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SeatReservationRepository extends JpaRepository<SeatReservation, Long> {
+
+    @Query("SELECT r.seat.seatId FROM SeatReservation r WHERE r.showing.showingId = :showingId")
+    List<Long> findReservedSeatIds(@Param("showingId") Long showingId);
+
+    // 釋放訂單持有的座位
+    @Modifying
+    @Query("DELETE FROM SeatReservation r WHERE r.booking.bookingId IN :bookingIds")
+    int deleteByBookingIds(@Param("bookingIds") Collection<String> bookingIds);
+
+    // 與 cancelExpiredBookings 搭配，須在取消訂單前執行
+    @Modifying
+    @Query("DELETE FROM SeatReservation r WHERE r.booking.bookingId IN (" +
+            "SELECT b.bookingId FROM Booking b " +
+            "WHERE b.bookingStatus = 'PENDING' " +
+            "AND b.bookingTime < :expiryTime)")
+    int deleteExpiredPendingReservations(@Param("expiryTime") LocalDateTime expiryTime);
+}
@@ -3,6 +3,7 @@ package org.example._citizenproj2.repository;
 import org.example._citizenproj2.model.Showing;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -12,6 +13,8 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public interface ShowingRepository extends JpaRepository<Showing, Long> {
@@ -23,6 +26,13 @@ public interface ShowingRepository extends JpaRepository<Showing, Long> {
 
     List<Showing> findByShowDateAndShowingStatus(LocalDate showDate, Showing.ShowingStatus status);
 
+    // 需要影廳資料時，影廳與場次一次載入
+    @EntityGraph(attributePaths = "venue")
+    Optional<Showing> findWithVenueByShowingId(Long showingId);
+
+    @EntityGraph(attributePaths = "venue")
+    List<Showing> findWithVenueByMovieMovieIdOrderByShowDateAscStartTimeAsc(Long movieId);
+
     // 複合查詢
     @Query("SELECT s FROM Showing s WHERE s.movie.movieId = :movieId " +
             "AND s.showDate >= :date AND s.showingStatus = 'AVAILABLE'")
@@ -31,15 +41,42 @@ public interface ShowingRepository extends JpaRepository<Showing, Long> {
             @Param("date") LocalDate date);
 
     // 座位更新
+    // 容量以相關子查詢取得：UPDATE 中的 s.venue 路徑會被轉成 EXISTS，SET 子句無法引用影廳欄位
     @Modifying
-    @Query("UPDATE Showing s SET s.availableSeats = :seats, " +
-            "s.showingStatus = CASE " +
+    @Query("UPDATE Showing s SET s.showingStatus = CASE " +
             "WHEN :seats <= 0 THEN 'FULL' " +
-            "WHEN :seats <= (s.venue.totalCapacity * 0.2) THEN 'ALMOST_FULL' " +
-            "ELSE 'AVAILABLE' END " +
+            "WHEN :seats <= ((SELECT v.totalCapacity FROM Venue v WHERE v = s.venue) * 0.2) THEN 'ALMOST_FULL' " +
+            "ELSE 'AVAILABLE' END, " +
+            "s.availableSeats = :seats " +
             "WHERE s.showingId = :showingId")
     int updateAvailableSeats(@Param("showingId") Long showingId, @Param("seats") Integer seats);
 
+    // 以增量更新剩餘座位，多筆訂單的變動合併為一次 UPDATE
+    // 狀態先於座位數指定：MariaDB 依序套用 SET，後面的運算式會讀到已更新的值
+    @Modifying
+    @Query("UPDATE Showing s SET s.showingStatus = CASE " +
+            "WHEN s.availableSeats + :delta <= 0 THEN 'FULL' " +
+            "WHEN s.availableSeats + :delta <= ((SELECT v.totalCapacity FROM Venue v WHERE v = s.venue) * 0.2) " +
+            "THEN 'ALMOST_FULL' " +
+            "ELSE 'AVAILABLE' END, " +
+            "s.availableSeats = s.availableSeats + :delta " +
+            "WHERE s.showingId = :showingId " +
+            "AND s.showingStatus <> 'CANCELLED'")
+    int adjustAvailableSeats(@Param("showingId") Long showingId, @Param("delta") Integer delta);
+
+    // 對帳用：各場次實際已售座位數
+    @Query("SELECT new map(" +
+            "s.showingId as showingId, " +
+            "s.availableSeats as availableSeats, " +
+            "s.venue.totalCapacity as totalCapacity, " +
+            "(SELECT COUNT(bd) FROM BookingDetail bd " +
+            "WHERE bd.booking.showing = s " +
+            "AND bd.booking.bookingStatus != 'CANCELLED') as bookedSeats) " +
+            "FROM Showing s " +
+            "WHERE s.showDate >= :since " +
+            "AND s.showingStatus <> 'CANCELLED'")
+    List<Map<String, Object>> findSeatCounts(@Param("since") LocalDate since);
+
     // 統計查詢
     @Query("SELECT COUNT(s) FROM Showing s WHERE s.movie.movieId = :movieId " +
             "AND s.showDate = :date")
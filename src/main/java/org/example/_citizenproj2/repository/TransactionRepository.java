@@ -1,10 +1,13 @@
 package org.example._citizenproj2.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example._citizenproj2.model.Transaction;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +15,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
@@ -23,12 +27,51 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
 
     List<Transaction> findByReferenceId(String referenceId);
 
+    // 同一訂單各錢包的付款合計，團體分攤訂單每個付款人一筆
+    @Query("SELECT new map(" +
+            "t.wallet.walletId as walletId, " +
+            "SUM(t.amount) as amount) " +
+            "FROM Transaction t " +
+            "WHERE t.referenceId = :referenceId " +
+            "AND t.transactionType = 'PAYMENT' " +
+            "AND t.status = 'COMPLETED' " +
+            "GROUP BY t.wallet.walletId " +
+            "ORDER BY t.wallet.walletId")
+    List<Map<String, Object>> sumPaymentsByWallet(@Param("referenceId") String referenceId);
+
     // 狀態查詢
     Page<Transaction> findByWalletWalletIdAndStatus(
             Long walletId,
             Transaction.Status status,
             Pageable pageable);
 
+    // 游標分頁：依 (transactionTime, transactionId) 由新到舊，走 idx_transaction_wallet_time 索引
+    // 回傳 List 不會觸發 count 查詢
+    @Query("SELECT t FROM Transaction t WHERE t.wallet.walletId = :walletId " +
+            "ORDER BY t.transactionTime DESC, t.transactionId DESC")
+    List<Transaction> findLatest(@Param("walletId") Long walletId, Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t WHERE t.wallet.walletId = :walletId " +
+            "AND (t.transactionTime < :transactionTime " +
+            "OR (t.transactionTime = :transactionTime AND t.transactionId < :transactionId)) " +
+            "ORDER BY t.transactionTime DESC, t.transactionId DESC")
+    List<Transaction> findBefore(@Param("walletId") Long walletId,
+                                 @Param("transactionTime") LocalDateTime transactionTime,
+                                 @Param("transactionId") String transactionId,
+                                 Pageable pageable);
+
+    // 對帳單匯出：以 fetch size 分段讀取的單向游標，逐筆處理不載入整份清單
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.wallet.walletId = :walletId " +
+            "AND t.transactionTime BETWEEN :startTime AND :endTime " +
+            "ORDER BY t.transactionTime, t.transactionId")
+    Stream<Transaction> streamStatement(@Param("walletId") Long walletId,
+                                        @Param("startTime") LocalDateTime startTime,
+                                        @Param("endTime") LocalDateTime endTime);
+
     // 時間範圍查詢
     @Query("SELECT t FROM Transaction t WHERE t.wallet.walletId = :walletId " +
             "AND t.transactionTime BETWEEN :startTime AND :endTime " +
@@ -55,6 +98,19 @@ public interface TransactionRepository extends JpaRepository<Transaction, String
             "AND t.status = 'COMPLETED'")
     BigDecimal calculateBalance(@Param("walletId") Long walletId);
 
+    // 帳本區段加總：版本介於 (fromVersion, toVersion]，fromVersion 為 null 時含未編號的舊交易
+    @Query("SELECT new map(" +
+            "COALESCE(SUM(t.amount), 0) as amount, " +
+            "COUNT(t) as count) " +
+            "FROM Transaction t " +
+            "WHERE t.wallet.walletId = :walletId " +
+            "AND t.status = 'COMPLETED' " +
+            "AND (t.walletVersion <= :toVersion OR (:fromVersion IS NULL AND t.walletVersion IS NULL)) " +
+            "AND (:fromVersion IS NULL OR t.walletVersion > :fromVersion)")
+    Map<String, Object> sumLedger(@Param("walletId") Long walletId,
+                                  @Param("fromVersion") Long fromVersion,
+                                  @Param("toVersion") Long toVersion);
+
     // 日期統計
     @Query("SELECT new map(" +
             "FUNCTION('DATE', t.transactionTime) as date, " +
@@ -0,0 +1,13 @@
+package org.example._citizenproj2.repository;
+
+import org.example._citizenproj2.model.WalletBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WalletBalanceSnapshotRepository extends JpaRepository<WalletBalanceSnapshot, Long> {
+
+    Optional<WalletBalanceSnapshot> findFirstByWalletIdOrderByWalletVersionDesc(Long walletId);
+}
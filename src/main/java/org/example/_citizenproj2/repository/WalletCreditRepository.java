@@ -0,0 +1,35 @@
+package org.example._citizenproj2.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example._citizenproj2.model.WalletCredit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletCreditRepository extends JpaRepository<WalletCredit, String> {
+
+    // 鎖住資料列並只取仍待入帳者，重啟重送或多節點同時處理時不會重複入帳
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM WalletCredit c WHERE c.creditId IN :creditIds " +
+            "AND c.status = 'PENDING' ORDER BY c.createdAt, c.creditId")
+    List<WalletCredit> lockPending(@Param("creditIds") Collection<String> creditIds);
+
+    List<WalletCredit> findByStatusOrderByCreatedAt(WalletCredit.Status status);
+
+    // 已寫入帳本的項目以一次 DELETE 移除
+    @Modifying
+    @Query("DELETE FROM WalletCredit c WHERE c.creditId IN :creditIds")
+    int deleteByCreditIds(@Param("creditIds") Collection<String> creditIds);
+
+    @Modifying
+    @Query("UPDATE WalletCredit c SET c.status = 'FAILED' " +
+            "WHERE c.creditId = :creditId AND c.status = 'PENDING'")
+    int markFailed(@Param("creditId") String creditId);
+}
@@ -1,16 +1,20 @@
 package org.example._citizenproj2.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example._citizenproj2.model.Transaction;
 import org.example._citizenproj2.model.Wallet;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,7 +29,66 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     @Query("SELECT CASE WHEN COUNT(w) > 0 THEN true ELSE false END FROM Wallet w WHERE w.member.memberId = :memberId")
     boolean existsByMember_MemberId(@Param("memberId") Long memberId);
 
+    @Query("SELECT w.walletId FROM Wallet w WHERE w.member.memberId = :memberId")
+    Optional<Long> findWalletIdByMemberId(@Param("memberId") Long memberId);
+
+    // 依錢包編號排序，多個錢包依相同順序更新避免死結
+    @Query("SELECT new map(w.member.memberId as memberId, w.walletId as walletId) " +
+            "FROM Wallet w WHERE w.member.memberId IN :memberIds ORDER BY w.walletId")
+    List<Map<String, Object>> findWalletIdsByMemberIds(@Param("memberIds") Collection<Long> memberIds);
+
+    // 條件式更新前讀取的餘額與版本
+    @Query("SELECT new map(" +
+            "w.balance as balance, " +
+            "w.version as version, " +
+            "w.walletStatus as walletStatus) " +
+            "FROM Wallet w WHERE w.walletId = :walletId")
+    Optional<Map<String, Object>> findBalanceSnapshot(@Param("walletId") Long walletId);
+
+    // 版本相符且扣款後餘額不為負才寫入，回傳 0 表示已被其他交易更新
+    @Modifying
+    @Query("UPDATE Wallet w SET " +
+            "w.balance = w.balance + :balanceDelta, " +
+            "w.totalDeposit = w.totalDeposit + :depositDelta, " +
+            "w.totalSpent = w.totalSpent + :spentDelta, " +
+            "w.lastTransactionTime = :now, " +
+            "w.updatedAt = :now, " +
+            "w.version = w.version + 1 " +
+            "WHERE w.walletId = :walletId " +
+            "AND w.version = :version " +
+            "AND w.balance + :balanceDelta >= 0")
+    int applyBalanceChange(@Param("walletId") Long walletId,
+                           @Param("version") Long version,
+                           @Param("balanceDelta") BigDecimal balanceDelta,
+                           @Param("depositDelta") BigDecimal depositDelta,
+                           @Param("spentDelta") BigDecimal spentDelta,
+                           @Param("now") LocalDateTime now);
+
+    // 雙錢包轉帳：單一 UPDATE 依主鍵順序鎖定兩列，同時扣款與入帳，成功時回傳 2
+    @Modifying
+    @Query("UPDATE Wallet w SET " +
+            "w.balance = w.balance + CASE WHEN w.walletId = :fromWalletId THEN -:amount ELSE :amount END, " +
+            "w.lastTransactionTime = :now, " +
+            "w.updatedAt = :now, " +
+            "w.version = w.version + 1 " +
+            "WHERE w.walletId IN (:fromWalletId, :toWalletId) " +
+            "AND w.walletStatus = 'ACTIVE' " +
+            "AND (w.walletId = :toWalletId OR w.balance >= :amount)")
+    int transferBalance(@Param("fromWalletId") Long fromWalletId,
+                        @Param("toWalletId") Long toWalletId,
+                        @Param("amount") BigDecimal amount,
+                        @Param("now") LocalDateTime now);
+
+    @Query("SELECT new map(w.walletId as walletId, w.balance as balance, w.version as version) " +
+            "FROM Wallet w WHERE w.walletId IN :walletIds")
+    List<Map<String, Object>> findBalances(@Param("walletIds") Collection<Long> walletIds);
+
     // 餘額查詢
+    // 鎖住錢包列，與正在更新該錢包餘額的交易排隊
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.walletId = :walletId")
+    Optional<Wallet> lockById(@Param("walletId") Long walletId);
+
     @Query("SELECT w.balance FROM Wallet w WHERE w.walletId = :walletId")
     Optional<BigDecimal> findBalanceById(@Param("walletId") Long walletId);
 
@@ -73,7 +136,10 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
             @Param("endTime") LocalDateTime endTime,
             Pageable pageable);
 
-    boolean existsByMemberMemberId(Long memberId);
+    // Wallet 有 setMemberMemberId，衍生查詢會把 memberMemberId 當成屬性名稱，改以 JPQL 指定
+    @Query("SELECT CASE WHEN COUNT(w) > 0 THEN true ELSE false END FROM Wallet w WHERE w.member.memberId = :memberId")
+    boolean existsByMemberMemberId(@Param("memberId") Long memberId);
 
-    Optional<Object> findByMemberMemberId(Long memberId);
+    @Query("SELECT w FROM Wallet w WHERE w.member.memberId = :memberId")
+    Optional<Object> findByMemberMemberId(@Param("memberId") Long memberId);
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package org.example._citizenproj2.repository;
+
+import jakarta.persistence.QueryHint;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.model.WalletStatistics;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public interface WalletStatisticsRepository extends JpaRepository<WalletStatistics, Long> {
+
+    // 累加一組統計，不存在時新增
+    // 原生寫入都標明影響的資料表，否則 Hibernate 會清空整個二級快取
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "wallet_statistics"))
+    @Query(value = "INSERT INTO wallet_statistics " +
+            "(wallet_id, stat_date, transaction_type, transaction_count, total_amount, min_amount, max_amount) " +
+            "VALUES (:walletId, :statDate, :transactionType, :count, :totalAmount, :minAmount, :maxAmount) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "transaction_count = transaction_count + VALUES(transaction_count), " +
+            "total_amount = total_amount + VALUES(total_amount), " +
+            "min_amount = LEAST(min_amount, VALUES(min_amount)), " +
+            "max_amount = GREATEST(max_amount, VALUES(max_amount))",
+            nativeQuery = true)
+    int accumulate(@Param("walletId") Long walletId,
+                   @Param("statDate") LocalDate statDate,
+                   @Param("transactionType") String transactionType,
+                   @Param("count") long count,
+                   @Param("totalAmount") BigDecimal totalAmount,
+                   @Param("minAmount") BigDecimal minAmount,
+                   @Param("maxAmount") BigDecimal maxAmount);
+
+    List<WalletStatistics> findByWalletIdAndStatDate(Long walletId, LocalDate statDate);
+
+    // 排除 ALL_TIME 累計列，起始日期早於 1970 時才不會重複計入
+    @Query("SELECT s FROM WalletStatistics s " +
+            "WHERE s.walletId = :walletId " +
+            "AND s.statDate > :allTime " +
+            "AND s.statDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY s.statDate, s.transactionType")
+    List<WalletStatistics> findDaily(@Param("walletId") Long walletId,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     @Param("allTime") LocalDate allTime);
+
+    // 各錢包指定日期、指定類型的金額合計
+    @Query("SELECT new map(s.walletId as walletId, SUM(s.totalAmount) as totalAmount) " +
+            "FROM WalletStatistics s " +
+            "WHERE s.statDate = :statDate AND s.transactionType IN :types " +
+            "GROUP BY s.walletId")
+    List<Map<String, Object>> sumByWalletForDate(@Param("statDate") LocalDate statDate,
+                                                 @Param("types") Collection<Transaction.TransactionType> types);
+
+    // 累計列筆數與已完成交易筆數不符的錢包，包含尚無累計列的既有錢包
+    @Query("SELECT t.wallet.walletId FROM Transaction t " +
+            "WHERE t.status = 'COMPLETED' " +
+            "GROUP BY t.wallet.walletId " +
+            "HAVING COUNT(t) <> (SELECT COALESCE(SUM(s.transactionCount), 0) FROM WalletStatistics s " +
+            "WHERE s.walletId = t.wallet.walletId AND s.statDate = :allTime)")
+    List<Long> findWalletIdsNeedingRebuild(@Param("allTime") LocalDate allTime);
+
+    @Modifying
+    @Query("DELETE FROM WalletStatistics s WHERE s.walletId = :walletId")
+    int deleteByWalletId(@Param("walletId") Long walletId);
+
+    // 由完整交易歷史重建，用於既有錢包的初次彙總
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "wallet_statistics"))
+    @Query(value = "INSERT INTO wallet_statistics " +
+            "(wallet_id, stat_date, transaction_type, transaction_count, total_amount, min_amount, max_amount) " +
+            "SELECT t.wallet_id, CAST(t.transaction_time AS DATE), t.transaction_type, " +
+            "COUNT(*), SUM(t.amount), MIN(t.amount), MAX(t.amount) " +
+            "FROM transactions t " +
+            "WHERE t.wallet_id = :walletId AND t.status = 'COMPLETED' " +
+            "GROUP BY t.wallet_id, CAST(t.transaction_time AS DATE), t.transaction_type",
+            nativeQuery = true)
+    int rebuildDaily(@Param("walletId") Long walletId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "wallet_statistics"))
+    @Query(value = "INSERT INTO wallet_statistics " +
+            "(wallet_id, stat_date, transaction_type, transaction_count, total_amount, min_amount, max_amount) " +
+            "SELECT t.wallet_id, :allTime, t.transaction_type, " +
+            "COUNT(*), SUM(t.amount), MIN(t.amount), MAX(t.amount) " +
+            "FROM transactions t " +
+            "WHERE t.wallet_id = :walletId AND t.status = 'COMPLETED' " +
+            "GROUP BY t.wallet_id, t.transaction_type",
+            nativeQuery = true)
+    int rebuildAllTime(@Param("walletId") Long walletId, @Param("allTime") LocalDate allTime);
+}
@@ -1,17 +1,25 @@
 package org.example._citizenproj2.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.example._citizenproj2.dto.request.BookingRequest;
 import org.example._citizenproj2.dto.request.GroupBookingRequest;
+import org.example._citizenproj2.dto.request.SeatHoldRequest;
+import org.example._citizenproj2.dto.response.BestSeatsResponse;
 import org.example._citizenproj2.dto.response.BookingResponse;
+import org.example._citizenproj2.dto.response.SeatHoldResponse;
+import org.example._citizenproj2.dto.response.SeatMapResponse;
 import org.example._citizenproj2.exception.BookingException;
 import org.example._citizenproj2.exception.SeatNotAvailableException;
 import org.example._citizenproj2.model.*;
 import org.example._citizenproj2.repository.*;
+import org.hibernate.Session;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -25,13 +33,27 @@ import java.util.*;
 public class BookingService {
 
     private final BookingRepository bookingRepository;
+    private final BookingDetailRepository bookingDetailRepository;
+    private final SeatReservationRepository seatReservationRepository;
     private final ShowingRepository showingRepository;
-    private final SeatRepository seatRepository;
     private final MemberRepository memberRepository;
     private final WalletService walletService;
+    private final SeatOccupancyService seatOccupancyService;
+    private final SeatHoldService seatHoldService;
+    private final ShowingSeatCounter showingSeatCounter;
+    private final IdGenerator idGenerator;
+    private final EntityManager entityManager;
 
     @Transactional
     public BookingResponse createBooking(BookingRequest request) {
+        // 先佔用座位，衝突時不進行任何資料庫操作
+        if (request.getHoldToken() != null) {
+            seatHoldService.consume(request.getHoldToken(), request.getMemberId(),
+                    request.getShowingId(), request.getSeatIds());
+        } else {
+            seatOccupancyService.claimSeats(request.getShowingId(), request.getSeatIds());
+        }
+
         // 驗證場次
         Showing showing = showingRepository.findById(request.getShowingId())
                 .orElseThrow(() -> new BookingException("場次不存在"));
@@ -43,8 +65,9 @@ public class BookingService {
         // 驗證座位
         List<Seat> seats = validateAndGetSeats(request.getSeatIds(), showing.getVenue().getVenueId());
 
-        // 計算總金額
-        BigDecimal totalAmount = calculateTotalAmount(showing, request.getTicketTypes());
+        // 建立訂單明細並計算總金額
+        List<BookingDetail> details = createBookingDetails(showing, seats, request.getTicketTypes());
+        BigDecimal totalAmount = calculateTotalAmount(details);
 
         // 檢查錢包餘額
         if (!walletService.hasEnoughBalance(member.getMemberId(), totalAmount)) {
@@ -61,18 +84,16 @@ public class BookingService {
         booking.setPaymentStatus(Booking.PaymentStatus.UNPAID);
         booking.setBookingTime(LocalDateTime.now());
 
-        // 保存訂單
+        // 保存訂單與明細，明細以批次寫入
         booking = bookingRepository.save(booking);
+        saveBookingDetails(booking, details);
 
-        // 創建訂單明細
-        createBookingDetails(booking, seats, request.getTicketTypes());
-
-        // 更新座位狀態
-        updateShowingAvailableSeats(showing);
+        // 更新剩餘座位數
+        showingSeatCounter.seatsBooked(showing.getShowingId(), seats.size());
 
         // 扣除錢包餘額
         walletService.processPayment(member.getMemberId(), totalAmount, booking.getBookingId());
-        booking.setPaymentStatus(Booking.PaymentStatus.PAID);
+        booking.updatePaymentStatus(Booking.PaymentStatus.PAID);
         booking = bookingRepository.save(booking);
 
         return convertToBookingResponse(booking);
@@ -80,17 +101,94 @@ public class BookingService {
 
     @Transactional
     public BookingResponse createGroupBooking(GroupBookingRequest request) {
+        if (request.getMinMembers() > request.getMaxMembers()) {
+            throw new BookingException("最小人數不能大於最大人數");
+        }
+        List<GroupBookingRequest.GroupMemberRequest> groupMembers = request.getMembers();
+        if (groupMembers == null
+                || groupMembers.size() < request.getMinMembers()
+                || groupMembers.size() > request.getMaxMembers()) {
+            throw new BookingException("團體人數不符合設定");
+        }
+        if (groupMembers.stream().anyMatch(groupMember -> groupMember.getMemberId() == null)) {
+            throw new BookingException("會員不存在");
+        }
+        if (request.getExpiryTime().isBefore(LocalDateTime.now())) {
+            throw BookingException.bookingExpired();
+        }
+
+        // 先佔用全部座位，衝突時不進行任何資料庫操作
+        List<Long> seatIds = claimGroupSeats(request);
+
         Showing showing = showingRepository.findById(request.getShowingId())
                 .orElseThrow(() -> new BookingException("場次不存在"));
 
-        if (request.getMinMembers() > request.getMaxMembers()) {
-            throw new BookingException("最小人數不能大於最大人數");
+        // 一次查出所有會員
+        Set<Long> memberIds = new HashSet<>();
+        memberIds.add(request.getOrganizerId());
+        groupMembers.forEach(groupMember -> memberIds.add(groupMember.getMemberId()));
+        Map<Long, Member> members = new HashMap<>();
+        memberRepository.findAllById(memberIds).forEach(member -> members.put(member.getMemberId(), member));
+        if (members.size() != memberIds.size()) {
+            throw new BookingException("會員不存在");
         }
 
-        // 創建團體訂單邏輯
-        // ... 實作團體訂單相關邏輯
+        Map<Long, Seat> seatsById = new HashMap<>();
+        validateAndGetSeats(seatIds, showing.getVenue().getVenueId())
+                .forEach(seat -> seatsById.put(seat.getSeatId(), seat));
+        List<Seat> seats = seatIds.stream().map(seatsById::get).toList();
+
+        // 建立團體訂單與明細
+        List<BookingDetail> details = createBookingDetails(showing, seats, groupMembers.stream()
+                .map(GroupBookingRequest.GroupMemberRequest::getTicketType)
+                .toList());
+        BigDecimal totalAmount = calculateTotalAmount(details);
+
+        Map<Long, BigDecimal> amountsByMember = new LinkedHashMap<>();
+        for (int i = 0; i < groupMembers.size(); i++) {
+            amountsByMember.merge(groupMembers.get(i).getMemberId(), details.get(i).getTicketPrice(), BigDecimal::add);
+        }
+
+        Booking booking = new Booking();
+        booking.setBookingId(generateBookingId());
+        booking.setMember(members.get(request.getOrganizerId()));
+        booking.setShowing(showing);
+        booking.setTotalAmount(totalAmount);
+        booking.setPaymentMethod(request.getPaymentMethod());
+        booking.setBookingStatus(Booking.BookingStatus.PENDING);
+        booking.setPaymentStatus(Booking.PaymentStatus.UNPAID);
+        booking.setBookingTime(LocalDateTime.now());
+        booking = bookingRepository.save(booking);
+        saveBookingDetails(booking, details);
+
+        // 分攤付款時所有會員的錢包在同一批次中扣款
+        if (Boolean.TRUE.equals(request.getSplitPayment())) {
+            walletService.processGroupPayment(amountsByMember, booking.getBookingId());
+        } else {
+            walletService.processPayment(request.getOrganizerId(), totalAmount, booking.getBookingId());
+        }
+        booking.updatePaymentStatus(Booking.PaymentStatus.PAID);
+        booking = bookingRepository.save(booking);
 
-        return null; // 需要實作完整的團體訂票邏輯
+        showingSeatCounter.seatsBooked(showing.getShowingId(), seats.size());
+
+        LocalDateTime joinTime = booking.getBookingTime();
+        BookingResponse response = convertToBookingResponse(booking);
+        response.setGroupBookingInfo(BookingResponse.GroupBookingInfo.builder()
+                .isGroupBooking(true)
+                .totalMembers(groupMembers.size())
+                .confirmedMembers(groupMembers.size())
+                .expiryTime(request.getExpiryTime())
+                .memberDetails(groupMembers.stream()
+                        .map(groupMember -> BookingResponse.GroupMemberInfo.builder()
+                                .memberId(groupMember.getMemberId())
+                                .memberName(members.get(groupMember.getMemberId()).getFullName())
+                                .paymentStatus(Booking.PaymentStatus.PAID.toString())
+                                .joinTime(joinTime)
+                                .build())
+                        .toList())
+                .build());
+        return response;
     }
 
     public BookingResponse getBookingById(String bookingId) {
@@ -116,12 +214,18 @@ public class BookingService {
 
         booking.setBookingStatus(Booking.BookingStatus.CANCELLED);
         booking = bookingRepository.save(booking);
+        seatReservationRepository.deleteByBookingIds(List.of(bookingId));
+        seatHoldService.completeBooking(bookingId);
 
         // 退回座位
-        updateShowingAvailableSeats(booking.getShowing());
-
-        // 退款處理
-        if (booking.getPaymentStatus() == Booking.PaymentStatus.PAID) {
+        List<Long> bookedSeatIds = getBookedSeatIds(booking);
+        seatOccupancyService.releaseSeatsAfterCommit(booking.getShowing().getShowingId(), bookedSeatIds);
+        showingSeatCounter.seatsReleased(booking.getShowing().getShowingId(), bookedSeatIds.size());
+
+        // 退款處理：依付款紀錄退回各付款人，團體分攤訂單每人退回自己支付的金額
+        if (booking.getPaymentStatus() == Booking.PaymentStatus.PAID
+                && walletService.refundPayments(booking.getBookingId()).isEmpty()) {
+            // 沒有付款紀錄的舊訂單全額退回訂購會員
             walletService.processRefund(
                     booking.getMember().getMemberId(),
                     booking.getTotalAmount(),
@@ -132,20 +236,33 @@ public class BookingService {
         return convertToBookingResponse(booking);
     }
 
+    public SeatHoldResponse holdSeats(SeatHoldRequest request) {
+        return seatHoldService.hold(request);
+    }
+
+    public void releaseHold(String holdToken) {
+        seatHoldService.release(holdToken);
+    }
+
+    public SseEmitter subscribeSeatEvents(Long showingId) {
+        return seatOccupancyService.subscribe(showingId);
+    }
+
+    public BestSeatsResponse findBestSeats(Long showingId, int count, String seatType) {
+        return seatOccupancyService.findBestSeats(showingId, count,
+                seatType != null ? Seat.SeatType.valueOf(seatType.toUpperCase()) : null);
+    }
+
     public List<String> getAvailableSeats(Long showingId) {
-        Showing showing = showingRepository.findById(showingId)
-                .orElseThrow(() -> new BookingException("場次不存在"));
-        List<Long> bookedSeatIds = bookingRepository.findBookedSeatIds(showingId);
-        // 修改這裡，直接使用 Repository 的方法返回座位號碼列表
-        return seatRepository.findAvailableSeatNumbers(
-                showing.getVenue().getVenueId(),
-                bookedSeatIds
-        );
+        return seatOccupancyService.getAvailableSeatNumbers(showingId);
     }
 
     public boolean verifySeatsAvailability(Long showingId, List<Long> seatIds) {
-        List<Long> bookedSeatIds = bookingRepository.findBookedSeatIds(showingId);
-        return !bookedSeatIds.containsAll(seatIds);
+        return seatOccupancyService.areSeatsAvailable(showingId, seatIds);
+    }
+
+    public SeatMapResponse getSeatMap(Long showingId, Long epoch, Long sinceVersion) {
+        return seatOccupancyService.getSeatMapResponse(showingId, epoch, sinceVersion);
     }
 
     @Transactional
@@ -153,7 +270,10 @@ public class BookingService {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new BookingException("訂單不存在"));
 
-        booking.setPaymentStatus(Booking.PaymentStatus.valueOf(status.toUpperCase()));
+        booking.updatePaymentStatus(Booking.PaymentStatus.valueOf(status.toUpperCase()));
+        if (booking.isPaid()) {
+            seatHoldService.completeBooking(bookingId);
+        }
         return convertToBookingResponse(bookingRepository.save(booking));
     }
 
@@ -172,7 +292,13 @@ public class BookingService {
     }
 
     private List<Seat> validateAndGetSeats(List<Long> seatIds, Long venueId) {
-        List<Seat> seats = seatRepository.findAllById(seatIds);
+        // 依ID批次載入，先從二級快取取，未命中的才查資料庫；不存在的ID回傳 null
+        List<Seat> seats = entityManager.unwrap(Session.class)
+                .byMultipleIds(Seat.class)
+                .multiLoad(seatIds)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
 
         if (seats.size() != seatIds.size()) {
             throw new SeatNotAvailableException("部分座位不存在");
@@ -190,30 +316,95 @@ public class BookingService {
         return seats;
     }
 
+    // 團體座位：指定座位 > 各成員偏好座位 > 系統挑選的相鄰座位
+    private List<Long> claimGroupSeats(GroupBookingRequest request) {
+        int count = request.getMembers().size();
+        List<Long> seatIds = request.getPreferredSeatIds();
+        if (seatIds == null || seatIds.isEmpty()) {
+            seatIds = request.getMembers().stream()
+                    .map(GroupBookingRequest.GroupMemberRequest::getPreferredSeatId)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+
+        if (seatIds.isEmpty()) {
+            return seatOccupancyService.claimBestSeats(request.getShowingId(), count);
+        }
+        if (seatIds.size() != count || new HashSet<>(seatIds).size() != count) {
+            throw BookingException.invalidSeats();
+        }
+        seatOccupancyService.claimSeats(request.getShowingId(), seatIds);
+        return seatIds;
+    }
+
+    private List<Long> getBookedSeatIds(Booking booking) {
+        if (booking.getBookingDetails() == null) {
+            return Collections.emptyList();
+        }
+        return booking.getBookingDetails().stream()
+                .map(detail -> detail.getSeat().getSeatId())
+                .toList();
+    }
+
     private String generateBookingId() {
-        return "BK" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return idGenerator.nextId(IdGenerator.BOOKING_PREFIX);
     }
 
-    private BigDecimal calculateTotalAmount(Showing showing, List<String> ticketTypes) {
-        return showing.getBasePrice().multiply(BigDecimal.valueOf(ticketTypes.size()));
+    private BigDecimal calculateTotalAmount(List<BookingDetail> details) {
+        return details.stream()
+                .map(BookingDetail::getTicketPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    private void createBookingDetails(Booking booking, List<Seat> seats, List<String> ticketTypes) {
+    // 同一訂單的票價只依票種與座位類型變化，每種組合只計算一次
+    private List<BookingDetail> createBookingDetails(Showing showing, List<Seat> seats, List<String> ticketTypes) {
+        if (ticketTypes == null || ticketTypes.size() != seats.size()) {
+            throw new BookingException("票種數量與座位數量不符");
+        }
+
+        Map<BookingDetail.TicketType, Map<Seat.SeatType, BigDecimal>> prices = new EnumMap<>(BookingDetail.TicketType.class);
+        List<BookingDetail> details = new ArrayList<>(seats.size());
         for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            BookingDetail.TicketType ticketType = ticketTypes.get(i) != null
+                    ? BookingDetail.TicketType.valueOf(ticketTypes.get(i).toUpperCase())
+                    : BookingDetail.TicketType.ADULT;
+
             BookingDetail detail = new BookingDetail();
-            detail.setBooking(booking);
-            detail.setSeat(seats.get(i));
-            detail.setTicketType(BookingDetail.TicketType.valueOf(ticketTypes.get(i)));
-            // 需要實作 BookingDetailRepository 來保存明細
+            detail.setSeat(seat);
+            detail.setTicketType(ticketType);
+            detail.setTicketPrice(prices
+                    .computeIfAbsent(ticketType, key -> new EnumMap<>(Seat.SeatType.class))
+                    .computeIfAbsent(seat.getSeatType(), seatType ->
+                            BookingDetail.priceOf(showing.getBasePrice(), ticketType, seatType)));
+            details.add(detail);
         }
+        return details;
     }
 
-    private void updateShowingAvailableSeats(Showing showing) {
-        int bookedSeats = bookingRepository.countConfirmedBookings(showing.getShowingId()).intValue();
-        showing.setAvailableSeats(showing.getVenue().getTotalCapacity() - bookedSeats);
-        showingRepository.save(showing);
+    // 明細使用序列 ID，依 hibernate.jdbc.batch_size 批次 INSERT
+    // 座位佔用紀錄立即寫入，由唯一鍵攔下其他節點已售出的座位
+    private void saveBookingDetails(Booking booking, List<BookingDetail> details) {
+        details.forEach(detail -> detail.setBooking(booking));
+        booking.setBookingDetails(new ArrayList<>(bookingDetailRepository.saveAll(details)));
+
+        List<SeatReservation> reservations = details.stream()
+                .map(detail -> SeatReservation.builder()
+                        .showing(booking.getShowing())
+                        .seat(detail.getSeat())
+                        .booking(booking)
+                        .build())
+                .toList();
+        try {
+            seatReservationRepository.saveAllAndFlush(reservations);
+        } catch (DataIntegrityViolationException e) {
+            throw SeatNotAvailableException.multipleSeatsNotAvailable(details.stream()
+                    .map(detail -> detail.getSeat().getFullSeatNumber())
+                    .toList());
+        }
     }
 
+    // 會員與場次為延遲載入，只讀取 ID 不會另外查詢
     private BookingResponse convertToBookingResponse(Booking booking) {
         return BookingResponse.builder()
                 .bookingId(booking.getBookingId())
@@ -0,0 +1,130 @@
+package org.example._citizenproj2.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.repository.WalletStatisticsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 每日轉出限額：轉帳、提款、付款的當日合計不得超過 app.wallet.daily.transfer.limit
+// 每個錢包一個計數器，日期與當日已用金額（分）合併存在一個 AtomicLong，以 CAS 檢查並佔用額度，換日時自動歸零
+// 計數器只存在本節點，啟動時由 wallet_statistics 當日彙總重建
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DailyLimitService {
+
+    static final Set<Transaction.TransactionType> LIMITED_TYPES = EnumSet.of(
+            Transaction.TransactionType.TRANSFER_OUT,
+            Transaction.TransactionType.WITHDRAWAL,
+            Transaction.TransactionType.PAYMENT);
+
+    private static final int AMOUNT_BITS = 44;
+    private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+
+    private final WalletStatisticsRepository walletStatisticsRepository;
+
+    @Value("${app.wallet.daily.transfer.limit:50000}")
+    private BigDecimal dailyLimit;
+
+    private final ConcurrentMap<Long, AtomicLong> usage = new ConcurrentHashMap<>();
+
+    // 佔用當日額度，超過限額時拋出例外；呼叫端交易回滾時歸還
+    public void reserve(Long walletId, BigDecimal amount) {
+        long cents = toCents(amount);
+        long limit = toCents(dailyLimit);
+        long today = LocalDate.now().toEpochDay();
+        AtomicLong counter = usage.computeIfAbsent(walletId, key -> new AtomicLong());
+
+        long current;
+        long next;
+        do {
+            current = counter.get();
+            long used = dayOf(current) == today ? amountOf(current) : 0;
+            if (used + cents > limit) {
+                throw WalletException.exceedDailyLimit();
+            }
+            next = pack(today, used + cents);
+        } while (!counter.compareAndSet(current, next));
+
+        afterRollback(() -> release(counter, today, cents));
+    }
+
+    public BigDecimal getRemaining(Long walletId) {
+        AtomicLong counter = usage.get(walletId);
+        long used = 0;
+        if (counter != null) {
+            long current = counter.get();
+            used = dayOf(current) == LocalDate.now().toEpochDay() ? amountOf(current) : 0;
+        }
+        return dailyLimit.subtract(BigDecimal.valueOf(used, 2)).max(BigDecimal.ZERO);
+    }
+
+    // 交易金額以負數記錄，合計取反即為當日轉出
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDate date = LocalDate.now();
+        long today = date.toEpochDay();
+        int wallets = 0;
+        for (Map<String, Object> row : walletStatisticsRepository.sumByWalletForDate(date, LIMITED_TYPES)) {
+            long cents = toCents(((BigDecimal) row.get("totalAmount")).negate().max(BigDecimal.ZERO));
+            usage.computeIfAbsent((Long) row.get("walletId"), key -> new AtomicLong())
+                    .accumulateAndGet(pack(today, cents), (current, rebuilt) ->
+                            dayOf(current) == today && amountOf(current) > cents ? current : rebuilt);
+            wallets++;
+        }
+        log.info("已重建 {} 個錢包的每日限額計數", wallets);
+    }
+
+    private void release(AtomicLong counter, long day, long cents) {
+        counter.getAndUpdate(current -> dayOf(current) == day
+                ? pack(day, Math.max(0, amountOf(current) - cents))
+                : current);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.UP).unscaledValue().longValueExact();
+    }
+
+    private static long pack(long day, long cents) {
+        return (day << AMOUNT_BITS) | (cents & AMOUNT_MASK);
+    }
+
+    private static long dayOf(long packed) {
+        return packed >>> AMOUNT_BITS;
+    }
+
+    private static long amountOf(long packed) {
+        return packed & AMOUNT_MASK;
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
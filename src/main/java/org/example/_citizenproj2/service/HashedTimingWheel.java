@@ -0,0 +1,88 @@
+package org.example._citizenproj2.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 雜湊時間輪：排程與取消都是 O(1)，每個 tick 只檢查一個槽
+// advance 只能由單一執行緒呼叫
+public class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Set<Timeout<T>>> buckets;
+    private final long startMillis;
+
+    private volatile long currentTick;
+
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize 必須是 2 的次方");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(ConcurrentHashMap.newKeySet());
+        }
+        this.startMillis = startMillis;
+    }
+
+    // 持有槽的鎖確認 advance 尚未處理該 tick 才放入，否則該項目要等下一圈才會到期
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        long deadlineTick = (deadlineMillis - startMillis + tickMillis - 1) / tickMillis;
+        while (true) {
+            Timeout<T> timeout = new Timeout<>(item, Math.max(deadlineTick, currentTick + 1));
+            Set<Timeout<T>> bucket = bucketOf(timeout.deadlineTick);
+            synchronized (bucket) {
+                if (timeout.deadlineTick > currentTick) {
+                    bucket.add(timeout);
+                    return timeout;
+                }
+            }
+        }
+    }
+
+    public boolean cancel(Timeout<T> timeout) {
+        return bucketOf(timeout.deadlineTick).remove(timeout);
+    }
+
+    // 推進到指定時間，回傳所有已到期的項目
+    public List<T> advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+            Set<Timeout<T>> bucket = bucketOf(tick);
+            synchronized (bucket) {
+                for (Timeout<T> timeout : bucket) {
+                    // 同一個槽中尚未輪到的項目留待下一圈
+                    if (timeout.deadlineTick <= tick && bucket.remove(timeout)) {
+                        expired.add(timeout.item);
+                    }
+                }
+                currentTick = tick;
+            }
+        }
+        return expired;
+    }
+
+    private Set<Timeout<T>> bucketOf(long tick) {
+        return buckets.get((int) (tick & mask));
+    }
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example._citizenproj2.service;
+
+// 業務主鍵產生器，產生的編號依時間遞增，字串排序即為產生順序
+public interface IdGenerator {
+
+    String BOOKING_PREFIX = "BK";
+    String TRANSACTION_PREFIX = "TXN";
+
+    String nextId(String prefix);
+}
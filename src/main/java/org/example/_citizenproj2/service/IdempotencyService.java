@@ -0,0 +1,203 @@
+package org.example._citizenproj2.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.exception.CustomException;
+import org.example._citizenproj2.model.IdempotencyRecord;
+import org.example._citizenproj2.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// 冪等請求
+// 第一次執行的結果與業務資料在同一交易中寫入 idempotency_records，並保留在有上限、會過期的記憶體快取；
+// 重送的請求直接回傳第一次的結果，不再執行交易。同時抵達的重送等待第一個請求完成
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.idempotency.cache-size:10000}")
+    private long cacheSize;
+
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private Cache<String, StoredResult> results;
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    public void start() {
+        results = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+        cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::purgeExpired, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cleaner.shutdown();
+    }
+
+    // 沒有冪等鍵時直接執行
+    public <T> T execute(String scope, String idempotencyKey, Object request, Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new CustomException.IdempotencyConflictException("冪等鍵長度不能超過100", "INVALID_IDEMPOTENCY_KEY");
+        }
+
+        String recordKey = scope + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        StoredResult cached = results.getIfPresent(recordKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(recordKey, mine);
+        if (running != null) {
+            return awaitRunning(running, requestHash, responseType);
+        }
+
+        try {
+            StoredResult result = executeOnce(recordKey, requestHash, action);
+            results.put(recordKey, result);
+            mine.result.complete(result);
+            return replay(result, requestHash, responseType);
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, mine);
+        }
+    }
+
+    private <T> StoredResult executeOnce(String recordKey, String requestHash, Supplier<T> action) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // 記憶體快取沒有時查資料庫，例如重啟後或請求落在其他節點
+                IdempotencyRecord stored = recordRepository.findById(recordKey)
+                        .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()))
+                        .orElse(null);
+                if (stored != null) {
+                    return new StoredResult(stored.getRequestHash(), stored.getResponseBody());
+                }
+
+                T response = action.get();
+                String body = serialize(response);
+                recordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .recordKey(recordKey)
+                        .requestHash(requestHash)
+                        .responseBody(body)
+                        .expiresAt(LocalDateTime.now().plusHours(ttlHours))
+                        .build());
+                return new StoredResult(requestHash, body);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // 其他節點以相同的鍵先完成，本次交易已整筆回滾，改回傳對方的結果
+            return recordRepository.findById(recordKey)
+                    .map(record -> new StoredResult(record.getRequestHash(), record.getResponseBody()))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private <T> T awaitRunning(InFlight running, String requestHash, Class<T> responseType) {
+        if (!running.requestHash.equals(requestHash)) {
+            throw keyReused();
+        }
+        try {
+            return replay(running.result.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS), requestHash, responseType);
+        } catch (ExecutionException e) {
+            // 第一個請求失敗時沒有結果可重送，讓重送的請求看到相同的錯誤
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new CustomException.IdempotencyConflictException("相同的請求仍在處理中", "IDEMPOTENCY_IN_PROGRESS");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException.IdempotencyConflictException("相同的請求仍在處理中", "IDEMPOTENCY_IN_PROGRESS");
+        }
+    }
+
+    private <T> T replay(StoredResult result, String requestHash, Class<T> responseType) {
+        if (!result.requestHash.equals(requestHash)) {
+            throw keyReused();
+        }
+        try {
+            return objectMapper.readValue(result.body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("冪等結果無法還原", e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("冪等結果無法序列化", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(serialize(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CustomException keyReused() {
+        return new CustomException.IdempotencyConflictException("冪等鍵已用於不同的請求內容", "IDEMPOTENCY_KEY_REUSED");
+    }
+
+    private void purgeExpired() {
+        try {
+            Integer deleted = transactionTemplate.execute(status -> recordRepository.deleteExpired(LocalDateTime.now()));
+            log.debug("已清除 {} 筆過期的冪等紀錄", deleted);
+        } catch (RuntimeException e) {
+            log.error("清除過期冪等紀錄失敗", e);
+        }
+    }
+
+    private record StoredResult(String requestHash, String body) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<StoredResult> result) {
+    }
+}
@@ -0,0 +1,229 @@
+package org.example._citizenproj2.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.example._citizenproj2.dto.response.MovieResponse;
+import org.example._citizenproj2.model.Movie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// 電影目錄的讀取快取（W-TinyLFU，有數量上限）
+// 單部電影快取 MovieResponse；列表只快取該頁的電影ID與總數，內容再從單部快取取得，
+// 因此修改電影只需清掉該部電影，列表只在成員可能改變時清除對應的類型或類別
+// 清除在交易提交後進行；到期時間只是保險，例如即將上映的電影隨日期自然轉為上映中
+// 清除前先遞增世代，載入期間世代改變表示讀到的可能是舊資料，不寫回快取
+// 快取中的物件不直接交給呼叫端，一律回傳複本
+@Service
+@RequiredArgsConstructor
+public class MovieCatalogCache {
+
+    // 電影世代依ID分散到固定數量的槽，不隨電影數量成長；同槽電影互相影響只會多放棄幾次寫回
+    private static final int GENERATION_SLOTS = 1024;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLongArray movieGenerations = new AtomicLongArray(GENERATION_SLOTS);
+    // 任何電影清除都遞增，列表載入無法事先知道會包含哪些電影
+    private final AtomicLong catalogGeneration = new AtomicLong();
+
+    @Value("${app.movie.cache.max-movies:5000}")
+    private long maxMovies;
+
+    @Value("${app.movie.cache.max-listings:2000}")
+    private long maxListings;
+
+    @Value("${app.movie.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.movie.cache.listing-ttl-minutes:10}")
+    private long listingTtlMinutes;
+
+    private Cache<Long, MovieResponse> movies;
+    private Cache<ListingKey, ListingPage> listings;
+
+    public enum Listing {
+        SHOWING, UPCOMING, CATEGORY
+    }
+
+    @PostConstruct
+    public void init() {
+        movies = Caffeine.newBuilder()
+                .maximumSize(maxMovies)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        listings = Caffeine.newBuilder()
+                .maximumSize(maxListings)
+                .expireAfterWrite(Duration.ofMinutes(listingTtlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, movies, "movie.responses");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "movie.listings");
+    }
+
+    public MovieResponse getMovie(Long movieId, Function<Long, MovieResponse> loader) {
+        MovieResponse cached = movies.getIfPresent(movieId);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long generation = movieGenerations.get(slotOf(movieId));
+        MovieResponse loaded = loader.apply(movieId);
+        putIfCurrent(movies, movieId, loaded, () -> movieGenerations.get(slotOf(movieId)), generation);
+        return copy(loaded);
+    }
+
+    // 未快取的電影以一次查詢載入
+    public Map<Long, MovieResponse> getMovies(Collection<Long> movieIds,
+                                              Function<Collection<Long>, Map<Long, MovieResponse>> bulkLoader) {
+        Map<Long, MovieResponse> result = new HashMap<>();
+        movies.getAllPresent(movieIds).forEach((movieId, movie) -> result.put(movieId, copy(movie)));
+
+        List<Long> missing = new ArrayList<>();
+        Map<Long, Long> generations = new HashMap<>();
+        for (Long movieId : movieIds) {
+            if (!result.containsKey(movieId) && generations.putIfAbsent(movieId, movieGenerations.get(slotOf(movieId))) == null) {
+                missing.add(movieId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        bulkLoader.apply(missing).forEach((movieId, movie) -> {
+            putIfCurrent(movies, movieId, movie, () -> movieGenerations.get(slotOf(movieId)), generations.get(movieId));
+            result.put(movieId, copy(movie));
+        });
+        return result;
+    }
+
+    // loader 查詢該頁電影，快取其ID與總數，並順便放入單部快取
+    public Page<MovieResponse> getListing(Listing listing, Long categoryId, Pageable pageable,
+                                          Function<Pageable, Page<MovieResponse>> loader,
+                                          Function<Collection<Long>, Map<Long, MovieResponse>> bulkLoader) {
+        ListingKey key = new ListingKey(listing, categoryId, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+        ListingPage cached = listings.getIfPresent(key);
+        if (cached == null) {
+            long generation = catalogGeneration.get();
+            Page<MovieResponse> page = loader.apply(pageable);
+            page.forEach(movie -> putIfCurrent(movies, movie.getMovieId(), movie, catalogGeneration::get, generation));
+            putIfCurrent(listings, key, new ListingPage(
+                    page.getContent().stream().map(MovieResponse::getMovieId).toList(),
+                    page.getTotalElements()), catalogGeneration::get, generation);
+            return page.map(MovieCatalogCache::copy);
+        }
+
+        Map<Long, MovieResponse> loaded = getMovies(cached.movieIds(), bulkLoader);
+        List<MovieResponse> content = cached.movieIds().stream()
+                .map(loaded::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, pageable, cached.total());
+    }
+
+    // before 為異動前的狀態（新增時為 null），after 為異動後（刪除時為 null）
+    public void evictAfterCommit(CatalogEntry before, CatalogEntry after) {
+        afterCommit(() -> {
+            Long movieId = before != null ? before.movieId() : after.movieId();
+            movieGenerations.incrementAndGet(slotOf(movieId));
+            catalogGeneration.incrementAndGet();
+            movies.invalidate(movieId);
+
+            Set<Listing> affected = EnumSet.noneOf(Listing.class);
+            Set<Long> categories = new HashSet<>();
+            for (CatalogEntry entry : new CatalogEntry[]{before, after}) {
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.status() == Movie.MovieStatus.SHOWING) {
+                    affected.add(Listing.SHOWING);
+                }
+                if (entry.releaseDate() == null || entry.releaseDate().isAfter(LocalDate.now())) {
+                    affected.add(Listing.UPCOMING);
+                }
+                if (entry.categoryId() != null) {
+                    categories.add(entry.categoryId());
+                }
+            }
+            // 只修改顯示欄位時列表成員不變，排序欄位可能改變，仍清除所屬列表
+            listings.asMap().keySet().removeIf(key -> key.listing() == Listing.CATEGORY
+                    ? categories.contains(key.categoryId())
+                    : affected.contains(key.listing()));
+        });
+    }
+
+    // 寫入後再檢查一次：世代在寫入前後改變時，移除剛寫入的值，交給下次讀取重新載入
+    private static <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value,
+                                            LongSupplier generation, long loadedAt) {
+        if (generation.getAsLong() != loadedAt) {
+            return;
+        }
+        cache.put(key, value);
+        if (generation.getAsLong() != loadedAt) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    private static int slotOf(Long movieId) {
+        return Long.hashCode(movieId) & (GENERATION_SLOTS - 1);
+    }
+
+    private static MovieResponse copy(MovieResponse movie) {
+        return movie.toBuilder()
+                .releaseDate(movie.getReleaseDate() != null ? (Date) movie.getReleaseDate().clone() : null)
+                .endDate(movie.getEndDate() != null ? (Date) movie.getEndDate().clone() : null)
+                .currentShowings(movie.getCurrentShowings() != null ? movie.getCurrentShowings().toBuilder().build() : null)
+                .ratingInfo(movie.getRatingInfo() != null ? movie.getRatingInfo().toBuilder().build() : null)
+                .genres(movie.getGenres() != null ? new ArrayList<>(movie.getGenres()) : null)
+                .build();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public record CatalogEntry(Long movieId, Movie.MovieStatus status, LocalDate releaseDate, Long categoryId) {
+        public static CatalogEntry of(Movie movie) {
+            return new CatalogEntry(
+                    movie.getMovieId(),
+                    movie.getMovieStatus(),
+                    movie.getReleaseDate() != null
+                            ? Instant.ofEpochMilli(movie.getReleaseDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate()
+                            : null,
+                    movie.getCategory() != null ? movie.getCategory().getCategoryId() : null);
+        }
+    }
+
+    private record ListingKey(Listing listing, Long categoryId, int page, int size, Sort sort) {
+    }
+
+    private record ListingPage(List<Long> movieIds, long total) {
+    }
+}
@@ -0,0 +1,274 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.model.Movie;
+import org.example._citizenproj2.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// 電影目錄的記憶體反向索引，取代 LIKE '%keyword%' 的全表掃描
+// 每個欄位一份詞典（詞 -> 電影ID -> 出現次數），詞典有序，最後一個英數詞可做前綴比對
+// 排序分數為各查詢詞 idf × 欄位權重 × 出現次數的總和，所有查詢詞都必須命中
+// 電影新增、修改、刪除於交易提交後增量更新；另定期由資料庫完整重建，納入其他節點的變更
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MovieSearchIndex {
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final double PREFIX_PENALTY = 0.7;
+
+    private final MovieRepository movieRepository;
+
+    @Value("${app.movie.search.rebuild-minutes:30}")
+    private long rebuildMinutes;
+
+    private volatile Segment segment = new Segment();
+
+    // 重建期間提交的變更（電影ID -> 文件，刪除為 null），切換前補進新索引；由 this 同步
+    private Map<Long, Document> changedDuringRebuild;
+    private final Object rebuildLock = new Object();
+    private ScheduledExecutorService rebuilder;
+
+    public enum Field {
+        MOVIE_NAME(4.0), ORIGINAL_NAME(3.0), DIRECTOR(2.0), CAST(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildSafely, rebuildMinutes, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdown();
+    }
+
+    // 資料庫讀取不持有鎖，期間的增量更新先記下，切換前重放，避免被較舊的讀取結果蓋掉
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringRebuild = new LinkedHashMap<>();
+            }
+            Segment rebuilt = new Segment();
+            try {
+                for (Movie movie : movieRepository.findAll()) {
+                    rebuilt.put(toDocument(movie));
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+            // 重放與切換在同一段同步內完成，之間不會有更新只寫到舊索引
+            synchronized (this) {
+                changedDuringRebuild.forEach((movieId, document) -> apply(rebuilt, movieId, document));
+                changedDuringRebuild = null;
+                segment = rebuilt;
+            }
+            log.info("電影搜尋索引已重建，共 {} 部電影", rebuilt.documents.size());
+        }
+    }
+
+    // 在呼叫端交易中擷取欄位，提交後才寫入索引
+    public void indexAfterCommit(Movie movie) {
+        Document document = toDocument(movie);
+        afterCommit(() -> update(document.movieId, document));
+    }
+
+    public void removeAfterCommit(Long movieId) {
+        afterCommit(() -> update(movieId, null));
+    }
+
+    private synchronized void update(Long movieId, Document document) {
+        apply(segment, movieId, document);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(movieId, document);
+        }
+    }
+
+    private static void apply(Segment target, Long movieId, Document document) {
+        if (document != null) {
+            target.put(document);
+        } else {
+            target.remove(movieId);
+        }
+    }
+
+    // 回傳依分數排序的電影ID，同分時較新上映的在前
+    public List<Long> search(String keyword, Set<Field> fields, Movie.MovieStatus status, Long categoryId) {
+        Segment current = segment;
+        List<SearchTokenizer.Token> tokens = SearchTokenizer.tokenizeForQuery(keyword);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Double> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            SearchTokenizer.Token token = tokens.get(i);
+            boolean prefix = i == tokens.size() - 1 && !token.cjk();
+            Map<Long, Double> matches = current.match(token.term(), fields, prefix);
+            if (scores == null) {
+                scores = matches;
+            } else {
+                scores.keySet().retainAll(matches.keySet());
+                scores.replaceAll((movieId, score) -> score + matches.get(movieId));
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        // 文件只取一次，排序期間被並行移除也不影響
+        List<Map.Entry<Document, Double>> ranked = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Document document = current.documents.get(entry.getKey());
+            if (document != null
+                    && (status == null || document.status == status)
+                    && (categoryId == null || categoryId.equals(document.categoryId))) {
+                ranked.add(Map.entry(document, entry.getValue()));
+            }
+        }
+        ranked.sort(Map.Entry.<Document, Double>comparingByValue().reversed()
+                .thenComparing(entry -> entry.getKey().releaseTime, Comparator.reverseOrder()));
+        return ranked.stream().map(entry -> entry.getKey().movieId).toList();
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("電影搜尋索引重建失敗", e);
+        }
+    }
+
+    private static Document toDocument(Movie movie) {
+        Map<Field, Map<String, Integer>> terms = new EnumMap<>(Field.class);
+        addTerms(terms, Field.MOVIE_NAME, movie.getMovieName());
+        addTerms(terms, Field.ORIGINAL_NAME, movie.getOriginalName());
+        addTerms(terms, Field.DIRECTOR, movie.getDirector());
+        addTerms(terms, Field.CAST, movie.getCast());
+        return new Document(
+                movie.getMovieId(),
+                movie.getMovieStatus(),
+                movie.getCategory() != null ? movie.getCategory().getCategoryId() : null,
+                movie.getReleaseDate() != null ? movie.getReleaseDate().getTime() : 0L,
+                terms
+        );
+    }
+
+    private static void addTerms(Map<Field, Map<String, Integer>> terms, Field field, String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (SearchTokenizer.Token token : SearchTokenizer.tokenizeForIndex(text)) {
+            counts.merge(token.term(), 1, Integer::sum);
+        }
+        terms.put(field, counts);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record Document(Long movieId,
+                            Movie.MovieStatus status,
+                            Long categoryId,
+                            long releaseTime,
+                            Map<Field, Map<String, Integer>> terms) {
+    }
+
+    // 寫入由外層同步，讀取不加鎖
+    private static final class Segment {
+        private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        private final Map<Field, ConcurrentSkipListMap<String, Map<Long, Integer>>> postings = new EnumMap<>(Field.class);
+
+        Segment() {
+            for (Field field : Field.values()) {
+                postings.put(field, new ConcurrentSkipListMap<>());
+            }
+        }
+
+        void put(Document document) {
+            remove(document.movieId);
+            document.terms.forEach((field, counts) -> counts.forEach((term, count) ->
+                    postings.get(field).computeIfAbsent(term, key -> new ConcurrentHashMap<>())
+                            .put(document.movieId, count)));
+            documents.put(document.movieId, document);
+        }
+
+        void remove(Long movieId) {
+            Document previous = documents.remove(movieId);
+            if (previous == null) {
+                return;
+            }
+            previous.terms.forEach((field, counts) -> counts.keySet().forEach(term ->
+                    postings.get(field).computeIfPresent(term, (key, movies) -> {
+                        movies.remove(movieId);
+                        return movies.isEmpty() ? null : movies;
+                    })));
+        }
+
+        Map<Long, Double> match(String term, Set<Field> fields, boolean prefix) {
+            Map<Long, Double> scores = new HashMap<>();
+            int total = Math.max(documents.size(), 1);
+            for (Field field : fields) {
+                ConcurrentSkipListMap<String, Map<Long, Integer>> dictionary = postings.get(field);
+                if (!prefix) {
+                    accumulate(scores, dictionary.get(term), field, total, 1.0);
+                    continue;
+                }
+                int expansions = 0;
+                for (Map.Entry<String, Map<Long, Integer>> entry
+                        : dictionary.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                    double boost = entry.getKey().equals(term) ? 1.0 : PREFIX_PENALTY;
+                    accumulate(scores, entry.getValue(), field, total, boost);
+                    if (++expansions >= MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private static void accumulate(Map<Long, Double> scores, Map<Long, Integer> movies,
+                                       Field field, int total, double boost) {
+            if (movies == null || movies.isEmpty()) {
+                return;
+            }
+            double idf = Math.log(1.0 + (double) total / movies.size());
+            movies.forEach((movieId, count) ->
+                    scores.merge(movieId, idf * field.weight * count * boost, Double::sum));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example._citizenproj2.service;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.example._citizenproj2.dto.request.MovieRequest;
@@ -7,25 +8,30 @@ import org.example._citizenproj2.dto.request.RatingRequest;
 import org.example._citizenproj2.dto.response.CategoryResponse;
 import org.example._citizenproj2.dto.response.MovieResponse;
 import org.example._citizenproj2.dto.response.RatingResponse;
+import org.example._citizenproj2.dto.response.SuggestionResponse;
 import org.example._citizenproj2.exception.MovieNotFoundException;
 import org.example._citizenproj2.model.Movie;
 import org.example._citizenproj2.model.MovieCategory;
+import org.example._citizenproj2.model.Showing;
 import org.example._citizenproj2.repository.MovieCategoryRepository;
 import org.example._citizenproj2.repository.MovieRepository;
+import org.example._citizenproj2.repository.ShowingRepository;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.*;
 import java.util.stream.Collectors;
 import org.example._citizenproj2.model.Rating;
 import org.example._citizenproj2.repository.RatingRepository;
 
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -35,6 +41,21 @@ public class MovieService {
     private final MovieRepository movieRepository;
     private final MovieCategoryRepository categoryRepository;
     private final RatingRepository ratingRepository;
+    private final ShowingRepository showingRepository;
+    private final MovieSearchIndex movieSearchIndex;
+    private final MovieSuggestionService movieSuggestionService;
+    private final MovieCatalogCache movieCatalogCache;
+    private final PlatformTransactionManager transactionManager;
+
+    // 快取讀取不開交易，未命中時才以唯讀交易載入
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void initReadOnlyTransaction() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     @Transactional
     public MovieResponse createMovie(MovieRequest request) {
         MovieCategory category = categoryRepository.findById(request.getCategoryId())
@@ -58,13 +79,17 @@ public class MovieService {
         movie.setMovieStatus(Movie.MovieStatus.COMING);
 
         Movie savedMovie = movieRepository.save(movie);
+        movieCatalogCache.evictAfterCommit(null, MovieCatalogCache.CatalogEntry.of(savedMovie));
+        movieSearchIndex.indexAfterCommit(savedMovie);
+        movieSuggestionService.rebuildAfterCommit();
         return convertToResponse(savedMovie);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public MovieResponse getMovie(Long id) {
-        Movie movie = movieRepository.findById(id)
-                .orElseThrow(() -> new MovieNotFoundException("找不到ID為 " + id + " 的電影"));
-        return convertToResponse(movie);
+        return movieCatalogCache.getMovie(id, movieId -> readOnlyTransaction.execute(status ->
+                convertToResponse(movieRepository.findWithCategoryByMovieId(movieId)
+                        .orElseThrow(() -> new MovieNotFoundException("找不到ID為 " + movieId + " 的電影")))));
     }
 
     @Transactional
@@ -74,6 +99,7 @@ public class MovieService {
 
         MovieCategory category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new IllegalArgumentException("無效的電影類別ID"));
+        MovieCatalogCache.CatalogEntry before = MovieCatalogCache.CatalogEntry.of(movie);
 
         movie.setMovieName(request.getMovieName());
         movie.setOriginalName(request.getOriginalName());
@@ -91,45 +117,79 @@ public class MovieService {
         movie.setCategory(category);
 
         Movie updatedMovie = movieRepository.save(movie);
+        movieCatalogCache.evictAfterCommit(before, MovieCatalogCache.CatalogEntry.of(updatedMovie));
+        movieSearchIndex.indexAfterCommit(updatedMovie);
+        movieSuggestionService.rebuildAfterCommit();
         return convertToResponse(updatedMovie);
     }
 
     @Transactional
     public void deleteMovie(Long id) {
-        if (!movieRepository.existsById(id)) {
-            throw new MovieNotFoundException("找不到ID為 " + id + " 的電影");
-        }
-        movieRepository.deleteById(id);
+        Movie movie = movieRepository.findById(id)
+                .orElseThrow(() -> new MovieNotFoundException("找不到ID為 " + id + " 的電影"));
+        movieRepository.delete(movie);
+        movieCatalogCache.evictAfterCommit(MovieCatalogCache.CatalogEntry.of(movie), null);
+        movieSearchIndex.removeAfterCommit(id);
+        movieSuggestionService.rebuildAfterCommit();
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<MovieResponse> getCurrentlyShowingMovies(Pageable pageable) {
-        return movieRepository.findCurrentlyShowingMovies(pageable)
-                .map(this::convertToResponse);
+        return movieCatalogCache.getListing(MovieCatalogCache.Listing.SHOWING, null, pageable,
+                page -> readOnlyTransaction.execute(status ->
+                        movieRepository.findCurrentlyShowingMovies(page).map(this::convertToResponse)),
+                this::loadResponses);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<MovieResponse> getUpcomingMovies(Pageable pageable) {
-        return movieRepository.findUpcomingMovies(pageable)
-                .map(this::convertToResponse);
+        return movieCatalogCache.getListing(MovieCatalogCache.Listing.UPCOMING, null, pageable,
+                page -> readOnlyTransaction.execute(status ->
+                        movieRepository.findUpcomingMovies(page).map(this::convertToResponse)),
+                this::loadResponses);
     }
 
+    // 有關鍵字時依相關度排序，忽略 pageable 的排序條件
     public Page<MovieResponse> searchMovies(String name, String director,
                                             Movie.MovieStatus status, Long categoryId,
                                             Pageable pageable) {
-        return movieRepository.searchMovies(name, director, status, categoryId, pageable)
-                .map(this::convertToResponse);
+        boolean hasName = name != null && !name.isBlank();
+        boolean hasDirector = director != null && !director.isBlank();
+        if (!hasName && !hasDirector) {
+            return movieRepository.findByFilters(status, categoryId, pageable)
+                    .map(this::convertToResponse);
+        }
+
+        List<Long> movieIds = hasName
+                ? movieSearchIndex.search(name, EnumSet.of(MovieSearchIndex.Field.MOVIE_NAME), status, categoryId)
+                : movieSearchIndex.search(director, EnumSet.of(MovieSearchIndex.Field.DIRECTOR), status, categoryId);
+        if (hasName && hasDirector) {
+            Set<Long> directorMatches = new HashSet<>(movieSearchIndex.search(
+                    director, EnumSet.of(MovieSearchIndex.Field.DIRECTOR), status, categoryId));
+            movieIds = movieIds.stream().filter(directorMatches::contains).toList();
+        }
+        return toRankedPage(movieIds, pageable);
     }
 
     @Transactional
     public MovieResponse updateMovieStatus(Long id, Movie.MovieStatus status) {
-        Movie movie = movieRepository.findById(id)
+        Movie movie = movieRepository.findWithCategoryByMovieId(id)
                 .orElseThrow(() -> new MovieNotFoundException("找不到ID為 " + id + " 的電影"));
+        MovieCatalogCache.CatalogEntry before = MovieCatalogCache.CatalogEntry.of(movie);
         movie.setMovieStatus(status);
-        return convertToResponse(movieRepository.save(movie));
+        Movie updatedMovie = movieRepository.save(movie);
+        movieCatalogCache.evictAfterCommit(before, MovieCatalogCache.CatalogEntry.of(updatedMovie));
+        movieSearchIndex.indexAfterCommit(updatedMovie);
+        movieSuggestionService.rebuildAfterCommit();
+        return convertToResponse(updatedMovie);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<MovieResponse> getMoviesByCategory(Long categoryId, Pageable pageable) {
-        return movieRepository.findMoviesByCategory(categoryId, pageable)
-                .map(this::convertToResponse);
+        return movieCatalogCache.getListing(MovieCatalogCache.Listing.CATEGORY, categoryId, pageable,
+                page -> readOnlyTransaction.execute(status ->
+                        movieRepository.findMoviesByCategory(categoryId, page).map(this::convertToResponse)),
+                this::loadResponses);
     }
 
     public Page<MovieResponse> getPopularMovies(Pageable pageable) {
@@ -142,9 +202,37 @@ public class MovieService {
                 .map(this::convertToResponse);
     }
 
+    // 只讀記憶體中的字典樹，不需要交易與連線
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        return movieSuggestionService.suggest(prefix, limit);
+    }
+
+    // 排名來自記憶體索引，快取未命中的電影才由 loadResponses 在自己的交易中載入
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<MovieResponse> searchByKeyword(String keyword, Pageable pageable) {
-        return movieRepository.searchByKeyword(keyword, pageable)
-                .map(this::convertToResponse);
+        return toRankedPage(movieSearchIndex.search(
+                keyword, EnumSet.allOf(MovieSearchIndex.Field.class), null, null), pageable);
+    }
+
+    // 只載入當頁的電影，依索引排名排列
+    private Page<MovieResponse> toRankedPage(List<Long> rankedIds, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.size());
+        List<Long> pageIds = rankedIds.subList(from, to);
+
+        Map<Long, MovieResponse> movies = movieCatalogCache.getMovies(pageIds, this::loadResponses);
+        List<MovieResponse> content = pageIds.stream()
+                .map(movies::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, pageable, rankedIds.size());
+    }
+
+    // 已在交易中時直接加入
+    private Map<Long, MovieResponse> loadResponses(Collection<Long> movieIds) {
+        return readOnlyTransaction.execute(status -> movieRepository.findWithCategoryByMovieIdIn(movieIds).stream()
+                .collect(Collectors.toMap(Movie::getMovieId, this::convertToResponse)));
     }
 
     public List<Map<String, Object>> getMovieStatusStatistics() {
@@ -178,11 +266,14 @@ public class MovieService {
     }
     // 在 MovieService 類中添加以下方法
 
+    // 場次與影廳一次載入；沒有場次時才確認電影是否存在
     public List<MovieResponse.ShowingInfo> getMovieShowings(Long movieId) {
-        Movie movie = movieRepository.findById(movieId)
-                .orElseThrow(() -> new MovieNotFoundException("找不到ID為 " + movieId + " 的電影"));
+        List<Showing> showings = showingRepository.findWithVenueByMovieMovieIdOrderByShowDateAscStartTimeAsc(movieId);
+        if (showings.isEmpty() && !movieRepository.existsById(movieId)) {
+            throw new MovieNotFoundException("找不到ID為 " + movieId + " 的電影");
+        }
 
-        return movie.getShowings().stream()
+        return showings.stream()
                 .map(showing -> MovieResponse.ShowingInfo.builder()
                         .showingId(showing.getShowingId())
                         .showTime(showing.getShowTime())
@@ -0,0 +1,160 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.dto.response.SuggestionResponse;
+import org.example._citizenproj2.repository.BookingRepository;
+import org.example._citizenproj2.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+// 搜尋建議：電影名稱、原文名稱、導演、演員的前綴補全，依訂單數排序
+// 查詢只讀取目前的不可變快照，不存取資料庫也不加鎖；重建時整個換掉快照
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MovieSuggestionService {
+
+    private static final Pattern CAST_SEPARATOR = Pattern.compile("[,，、/;；|]+");
+
+    private final MovieRepository movieRepository;
+    private final BookingRepository bookingRepository;
+
+    @Value("${app.movie.suggest.top-k:10}")
+    private int topK;
+
+    @Value("${app.movie.suggest.rebuild-minutes:10}")
+    private long rebuildMinutes;
+
+    private volatile SuggestionTrie snapshot = SuggestionTrie.builder(1).build();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private ScheduledExecutorService rebuilder;
+
+    @PostConstruct
+    public void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "movie-suggestion-trie");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::rebuildSafely, rebuildMinutes, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        rebuilder.shutdown();
+    }
+
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        String normalized = SearchTokenizer.normalize(prefix).strip();
+        // 筆數限制在 [0, topK]，負數視為 0
+        int size = Math.max(0, Math.min(limit, topK));
+        if (normalized.isEmpty() || size == 0) {
+            return Collections.emptyList();
+        }
+        return snapshot.lookup(normalized, size).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .text(suggestion.text())
+                        .type(suggestion.type())
+                        .movieId(suggestion.movieId())
+                        .build())
+                .toList();
+    }
+
+    // 電影異動提交後排入重建，短時間內多次異動只重建一次
+    public void rebuildAfterCommit() {
+        Runnable request = () -> {
+            if (rebuildPending.compareAndSet(false, true)) {
+                rebuilder.execute(this::rebuildSafely);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            request.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                request.run();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildPending.set(false);
+
+        Map<Long, Long> bookings = new HashMap<>();
+        for (Map<String, Object> row : bookingRepository.countBookingsByMovie()) {
+            bookings.put((Long) row.get("movieId"), (Long) row.get("bookingCount"));
+        }
+
+        SuggestionTrie.Builder builder = SuggestionTrie.builder(topK);
+        // 導演、演員以所有作品的訂單數合計排序
+        Map<String, Long> directors = new HashMap<>();
+        Map<String, Long> cast = new HashMap<>();
+        int movies = 0;
+        for (Map<String, Object> row : movieRepository.findSuggestionSources()) {
+            Long movieId = (Long) row.get("movieId");
+            long score = bookings.getOrDefault(movieId, 0L);
+            for (String name : new String[]{(String) row.get("movieName"), (String) row.get("originalName")}) {
+                if (name != null && !name.isBlank()) {
+                    add(builder, new SuggestionTrie.Suggestion(
+                            name.strip(), SuggestionResponse.SuggestionType.MOVIE, movieId, score));
+                }
+            }
+            String director = (String) row.get("director");
+            if (director != null && !director.isBlank()) {
+                directors.merge(director.strip(), score, Long::sum);
+            }
+            String castText = (String) row.get("cast");
+            if (castText != null) {
+                for (String member : CAST_SEPARATOR.split(castText)) {
+                    if (!member.isBlank()) {
+                        cast.merge(member.strip(), score, Long::sum);
+                    }
+                }
+            }
+            movies++;
+        }
+        directors.forEach((name, score) -> add(builder, new SuggestionTrie.Suggestion(
+                name, SuggestionResponse.SuggestionType.DIRECTOR, null, score)));
+        cast.forEach((name, score) -> add(builder, new SuggestionTrie.Suggestion(
+                name, SuggestionResponse.SuggestionType.CAST, null, score)));
+
+        snapshot = builder.build();
+        log.info("搜尋建議已重建，共 {} 部電影、{} 位導演、{} 位演員", movies, directors.size(), cast.size());
+    }
+
+    // 除了完整名稱，每個單字開頭也能補全，例如輸入 nolan 找到 Christopher Nolan
+    private static void add(SuggestionTrie.Builder builder, SuggestionTrie.Suggestion suggestion) {
+        String key = SearchTokenizer.normalize(suggestion.text());
+        builder.add(key, suggestion);
+        for (int i = 1; i < key.length(); i++) {
+            if (!Character.isLetterOrDigit(key.charAt(i - 1)) && Character.isLetterOrDigit(key.charAt(i))) {
+                builder.add(key.substring(i), suggestion);
+            }
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("搜尋建議重建失敗", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example._citizenproj2.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// 搜尋用斷詞
+// 全形轉半形並轉小寫；中日韓文字切成單字與相鄰雙字，其他文字以非字母數字分隔成詞
+final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    // 索引用：中日韓連續文字同時產生單字與雙字
+    static List<Token> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    // 查詢用：單一中日韓字元查單字，兩字以上只查雙字
+    static List<Token> tokenizeForQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static List<Token> tokenize(String text, boolean forIndex) {
+        String normalized = normalize(text);
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                cjkRun.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjkRun, tokens, forIndex);
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens, forIndex);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens, forIndex);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<Token> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(new Token(word.toString(), false));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<String> run, List<Token> tokens, boolean forIndex) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (forIndex || run.size() == 1) {
+            run.forEach(character -> tokens.add(new Token(character, true)));
+        }
+        for (int i = 0; i + 1 < run.size(); i++) {
+            tokens.add(new Token(run.get(i) + run.get(i + 1), true));
+        }
+        run.clear();
+    }
+
+    record Token(String term, boolean cjk) {
+    }
+}
@@ -0,0 +1,113 @@
+package org.example._citizenproj2.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.dto.response.SeatEventResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+// 場次座位變動的 SSE 推播
+// SseEmitter 使用非同步請求，不佔用請求執行緒；所有推送由單一執行緒依序送出
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatEventPublisher {
+
+    private static final long EMITTER_TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-event-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdown();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    public SseEmitter subscribe(Long showingId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        subscribers.compute(showingId, (key, emitters) -> {
+            Set<SseEmitter> current = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            current.add(emitter);
+            return current;
+        });
+
+        Runnable remove = () -> unsubscribe(showingId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    public void publish(SeatEventResponse event) {
+        Set<SseEmitter> emitters = subscribers.get(event.getShowingId());
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+
+        // 每個事件只序列化一次，再分送給所有訂閱者
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("座位事件序列化失敗", e);
+            return;
+        }
+
+        dispatcher.execute(() -> {
+            for (SseEmitter emitter : emitters) {
+                send(event.getShowingId(), emitter, SseEmitter.event()
+                        .name(event.getEventType().name())
+                        .id(event.getEpoch() + "-" + event.getVersion())
+                        .data(payload));
+            }
+        });
+    }
+
+    private void heartbeat() {
+        subscribers.forEach((showingId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                send(showingId, emitter, SseEmitter.event().comment("ping"));
+            }
+        });
+    }
+
+    private void send(Long showingId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // 連線已中斷
+            unsubscribe(showingId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(Long showingId, SseEmitter emitter) {
+        subscribers.computeIfPresent(showingId, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,246 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.dto.request.SeatHoldRequest;
+import org.example._citizenproj2.dto.response.SeatHoldResponse;
+import org.example._citizenproj2.exception.BookingException;
+import org.example._citizenproj2.repository.BookingRepository;
+import org.example._citizenproj2.repository.MemberRepository;
+import org.example._citizenproj2.repository.SeatReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+
+// 座位暫時保留
+// 到期由時間輪觸發，立即釋放座位；綁定訂單的保留則批次取消 PENDING 訂單
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatHoldService {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final SeatOccupancyService seatOccupancyService;
+    private final BookingRepository bookingRepository;
+    private final MemberRepository memberRepository;
+    private final SeatReservationRepository seatReservationRepository;
+    private final ShowingSeatCounter showingSeatCounter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.expiration.minutes:15}")
+    private long expirationMinutes;
+
+    @Value("${app.booking.hold.tick-millis:1000}")
+    private long tickMillis;
+
+    private final ConcurrentMap<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private final Queue<SeatHold> pendingCancellations = new ConcurrentLinkedQueue<>();
+
+    private HashedTimingWheel<SeatHold> wheel;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void start() {
+        wheel = new HashedTimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdown();
+    }
+
+    public SeatHoldResponse hold(SeatHoldRequest request) {
+        Duration maxTtl = Duration.ofMinutes(expirationMinutes);
+        Duration ttl = request.getTtlSeconds() == null
+                ? maxTtl
+                : Duration.ofSeconds(Math.min(request.getTtlSeconds(), maxTtl.getSeconds()));
+
+        // 先確認會員可用再佔用座位，避免不存在或停用的會員鎖住座位
+        if (request.getMemberId() == null || !memberRepository.existsByMemberIdAndIsActiveTrue(request.getMemberId())) {
+            throw new BookingException("會員不存在或已停用");
+        }
+        seatOccupancyService.claimSeats(request.getShowingId(), request.getSeatIds());
+
+        SeatHold hold = new SeatHold(
+                UUID.randomUUID().toString(),
+                request.getMemberId(),
+                request.getShowingId(),
+                List.copyOf(request.getSeatIds()),
+                null,
+                Instant.now().plus(ttl)
+        );
+        schedule(hold);
+        return convertToResponse(hold);
+    }
+
+    public void release(String holdToken) {
+        SeatHold hold = holds.remove(holdToken);
+        if (hold == null) {
+            throw new BookingException("座位保留不存在或已過期", "HOLD_NOT_FOUND");
+        }
+        cancelTimeout(hold);
+        seatOccupancyService.releaseSeats(hold.showingId, hold.seatIds);
+    }
+
+    // 將保留轉為訂單，座位維持佔用；訂單交易回滾時釋放座位
+    public void consume(String holdToken, Long memberId, Long showingId, List<Long> seatIds) {
+        SeatHold hold = holds.get(holdToken);
+        if (hold == null) {
+            throw new BookingException("座位保留不存在或已過期", "HOLD_NOT_FOUND");
+        }
+        if (!hold.memberId.equals(memberId)
+                || !hold.showingId.equals(showingId)
+                || !new HashSet<>(hold.seatIds).equals(new HashSet<>(seatIds))) {
+            throw BookingException.invalidSeats();
+        }
+        if (!holds.remove(holdToken, hold)) {
+            throw new BookingException("座位保留不存在或已過期", "HOLD_NOT_FOUND");
+        }
+        cancelTimeout(hold);
+        seatOccupancyService.releaseSeatsOnRollback(showingId, seatIds);
+    }
+
+    // PENDING 訂單的付款期限，到期時取消訂單並釋放座位
+    public void expireBookingAt(String bookingId, Long showingId, List<Long> seatIds, Instant expiresAt) {
+        schedule(new SeatHold(
+                "BOOKING-" + bookingId,
+                null,
+                showingId,
+                List.copyOf(seatIds),
+                bookingId,
+                expiresAt
+        ));
+    }
+
+    public void completeBooking(String bookingId) {
+        SeatHold hold = holds.remove("BOOKING-" + bookingId);
+        if (hold != null) {
+            cancelTimeout(hold);
+        }
+    }
+
+    // 重啟後重建 PENDING 訂單的到期排程，已過期的以一次 UPDATE 取消
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingBookings() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(expirationMinutes);
+        transactionTemplate.executeWithoutResult(status -> {
+            seatReservationRepository.deleteExpiredPendingReservations(cutoff);
+            bookingRepository.cancelExpiredBookings(cutoff);
+        });
+        showingSeatCounter.reconcile();
+
+        Map<String, List<Long>> seatIdsByBooking = new HashMap<>();
+        for (Map<String, Object> row : bookingRepository.findPendingBookingSeats(cutoff)) {
+            seatIdsByBooking.computeIfAbsent((String) row.get("bookingId"), key -> new ArrayList<>())
+                    .add((Long) row.get("seatId"));
+        }
+
+        for (Map<String, Object> row : bookingRepository.findPendingBookings(cutoff)) {
+            String bookingId = (String) row.get("bookingId");
+            LocalDateTime bookingTime = (LocalDateTime) row.get("bookingTime");
+            expireBookingAt(
+                    bookingId,
+                    (Long) row.get("showingId"),
+                    seatIdsByBooking.getOrDefault(bookingId, Collections.emptyList()),
+                    bookingTime.plusMinutes(expirationMinutes).atZone(ZoneId.systemDefault()).toInstant()
+            );
+        }
+    }
+
+    private void schedule(SeatHold hold) {
+        holds.put(hold.token, hold);
+        hold.timeout = wheel.schedule(hold, hold.expiresAt.toEpochMilli());
+    }
+
+    private void cancelTimeout(SeatHold hold) {
+        if (hold.timeout != null) {
+            wheel.cancel(hold.timeout);
+        }
+    }
+
+    private void tick() {
+        try {
+            for (SeatHold hold : wheel.advance(System.currentTimeMillis())) {
+                if (!holds.remove(hold.token, hold)) {
+                    continue;
+                }
+                if (hold.bookingId == null) {
+                    seatOccupancyService.releaseSeats(hold.showingId, hold.seatIds);
+                } else {
+                    pendingCancellations.add(hold);
+                }
+            }
+            flushCancellations();
+        } catch (RuntimeException e) {
+            log.error("座位保留到期處理失敗", e);
+        }
+    }
+
+    // 綁定訂單的保留先寫入資料庫再釋放座位，避免座位地圖重新載入時讀到舊狀態
+    private void flushCancellations() {
+        while (!pendingCancellations.isEmpty()) {
+            List<SeatHold> batch = new ArrayList<>();
+            SeatHold hold;
+            while (batch.size() < FLUSH_BATCH_SIZE && (hold = pendingCancellations.poll()) != null) {
+                batch.add(hold);
+            }
+
+            List<String> bookingIds = batch.stream().map(item -> item.bookingId).toList();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    bookingRepository.cancelPendingBookings(bookingIds);
+                    seatReservationRepository.deleteByBookingIds(bookingIds);
+                });
+            } catch (RuntimeException e) {
+                // 寫入失敗時放回佇列，下一個 tick 重試
+                pendingCancellations.addAll(batch);
+                throw e;
+            }
+
+            for (SeatHold expired : batch) {
+                seatOccupancyService.releaseSeats(expired.showingId, expired.seatIds);
+                showingSeatCounter.seatsReleased(expired.showingId, expired.seatIds.size());
+            }
+        }
+    }
+
+    private SeatHoldResponse convertToResponse(SeatHold hold) {
+        return SeatHoldResponse.builder()
+                .holdToken(hold.token)
+                .memberId(hold.memberId)
+                .showingId(hold.showingId)
+                .seatIds(hold.seatIds)
+                .expiresAt(LocalDateTime.ofInstant(hold.expiresAt, ZoneId.systemDefault()))
+                .build();
+    }
+
+    @RequiredArgsConstructor
+    static final class SeatHold {
+        private final String token;
+        private final Long memberId;
+        private final Long showingId;
+        private final List<Long> seatIds;
+        private final String bookingId;
+        private final Instant expiresAt;
+        private volatile HashedTimingWheel.Timeout<SeatHold> timeout;
+    }
+}
@@ -0,0 +1,269 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.example._citizenproj2.dto.response.BestSeatsResponse;
+import org.example._citizenproj2.dto.response.SeatEventResponse;
+import org.example._citizenproj2.dto.response.SeatMapResponse;
+import org.example._citizenproj2.exception.BookingException;
+import org.example._citizenproj2.exception.SeatNotAvailableException;
+import org.example._citizenproj2.model.Seat;
+import org.example._citizenproj2.model.Showing;
+import org.example._citizenproj2.repository.BookingRepository;
+import org.example._citizenproj2.repository.SeatRepository;
+import org.example._citizenproj2.repository.ShowingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+public class SeatOccupancyService {
+
+    private static final int CLAIM_ATTEMPTS = 3;
+
+    private final ShowingRepository showingRepository;
+    private final SeatRepository seatRepository;
+    private final BookingRepository bookingRepository;
+    private final SeatEventPublisher seatEventPublisher;
+
+    @Value("${app.booking.seat-map.sweep-minutes:10}")
+    private long sweepMinutes;
+
+    // 場次ID -> 座位佔用狀態，第一次使用時才從資料庫載入，散場後定期移除
+    private final ConcurrentMap<Long, ShowingSeatMap> seatMaps = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, SeatMapResponse> fullSnapshots = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-map-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictEnded, sweepMinutes, sweepMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sweeper.shutdown();
+    }
+
+    public ShowingSeatMap getSeatMap(Long showingId) {
+        ShowingSeatMap seatMap = seatMaps.get(showingId);
+        if (seatMap != null) {
+            return seatMap;
+        }
+        // 查詢不在 computeIfAbsent 內執行，避免載入期間卡住其他場次；同時載入時以先放入者為準
+        ShowingSeatMap loaded = load(showingId);
+        seatMap = seatMaps.putIfAbsent(showingId, loaded);
+        return seatMap != null ? seatMap : loaded;
+    }
+
+    public List<String> getAvailableSeatNumbers(Long showingId) {
+        return getSeatMap(showingId).getAvailableSeatNumbers();
+    }
+
+    // 帶入客戶端持有的 epoch/version 時只回傳之後改變的格位
+    public SeatMapResponse getSeatMapResponse(Long showingId, Long epoch, Long sinceVersion) {
+        ShowingSeatMap seatMap = getSeatMap(showingId);
+        long version = seatMap.getVersion();
+
+        if (epoch != null && sinceVersion != null
+                && epoch == seatMap.getEpoch() && sinceVersion <= version) {
+            return SeatMapResponse.builder()
+                    .showingId(showingId)
+                    .epoch(seatMap.getEpoch())
+                    .version(version)
+                    .full(false)
+                    .changes(seatMap.changesSince(sinceVersion).entrySet().stream()
+                            .map(change -> SeatMapResponse.SeatChange.builder()
+                                    .index(change.getKey())
+                                    .booked(change.getValue())
+                                    .build())
+                            .toList())
+                    .build();
+        }
+
+        // 完整地圖依版本快取，同一版本只編碼一次
+        SeatMapResponse cached = fullSnapshots.get(showingId);
+        if (cached != null && cached.getEpoch() == seatMap.getEpoch() && cached.getVersion() == version) {
+            return cached;
+        }
+        SeatMapResponse snapshot = SeatMapResponse.builder()
+                .showingId(showingId)
+                .epoch(seatMap.getEpoch())
+                .version(version)
+                .full(true)
+                .rows(seatMap.getRows())
+                .columns(seatMap.getColumns())
+                .rowLabels(seatMap.getRowLabels())
+                .layout(seatMap.getLayout())
+                .occupancy(Base64.getEncoder().encodeToString(seatMap.encodeOccupancy()))
+                .build();
+        fullSnapshots.put(showingId, snapshot);
+        return snapshot;
+    }
+
+    public BestSeatsResponse findBestSeats(Long showingId, int count, Seat.SeatType seatType) {
+        if (count < 1) {
+            throw BookingException.invalidSeats();
+        }
+        ShowingSeatMap seatMap = getSeatMap(showingId);
+        List<Long> seatIds = seatMap.findBestSeats(count, seatType);
+        if (seatIds.isEmpty()) {
+            throw new SeatNotAvailableException(
+                    String.format("找不到 %d 個相鄰的可用座位", count),
+                    "NO_CONSECUTIVE_SEATS");
+        }
+        return BestSeatsResponse.builder()
+                .showingId(showingId)
+                .requestedSeats(count)
+                .seatType(seatType != null ? seatType.name() : null)
+                .seatIds(seatIds)
+                .seatNumbers(seatIds.stream().map(seatMap::getSeatNumber).toList())
+                .build();
+    }
+
+    // 挑選並佔用相鄰座位，挑選與佔用之間被搶走時重新挑選
+    public List<Long> claimBestSeats(Long showingId, int count) {
+        SeatNotAvailableException lastConflict = null;
+        for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+            List<Long> seatIds = findBestSeats(showingId, count, null).getSeatIds();
+            try {
+                claimSeats(showingId, seatIds);
+                return seatIds;
+            } catch (SeatNotAvailableException e) {
+                lastConflict = e;
+            }
+        }
+        throw lastConflict;
+    }
+
+    public boolean areSeatsAvailable(Long showingId, Collection<Long> seatIds) {
+        return getSeatMap(showingId).areAvailable(seatIds);
+    }
+
+    // 在任何 JPA 操作前先以 CAS 佔用座位，衝突時直接失敗
+    // 交易回滾時自動釋放
+    public void claimSeats(Long showingId, Collection<Long> seatIds) {
+        ShowingSeatMap seatMap = getSeatMap(showingId);
+        for (Long seatId : seatIds) {
+            if (!seatMap.contains(seatId)) {
+                throw new SeatNotAvailableException("座位不屬於該影廳");
+            }
+        }
+
+        if (!seatMap.tryClaim(seatIds)) {
+            throw SeatNotAvailableException.multipleSeatsNotAvailable(
+                    seatIds.stream()
+                            .filter(seatId -> !seatMap.isAvailable(seatId))
+                            .map(seatMap::getSeatNumber)
+                            .toList());
+        }
+
+        afterRollback(() -> seatMap.release(seatIds));
+        afterCommit(() -> publish(seatMap, SeatEventResponse.EventType.CLAIMED, seatIds));
+    }
+
+    public void releaseSeats(Long showingId, Collection<Long> seatIds) {
+        ShowingSeatMap seatMap = getSeatMap(showingId);
+        seatMap.release(seatIds);
+        publish(seatMap, SeatEventResponse.EventType.RELEASED, seatIds);
+    }
+
+    public void releaseSeatsOnRollback(Long showingId, Collection<Long> seatIds) {
+        ShowingSeatMap seatMap = getSeatMap(showingId);
+        afterRollback(() -> {
+            seatMap.release(seatIds);
+            publish(seatMap, SeatEventResponse.EventType.RELEASED, seatIds);
+        });
+    }
+
+    public void releaseSeatsAfterCommit(Long showingId, Collection<Long> seatIds) {
+        afterCommit(() -> releaseSeats(showingId, seatIds));
+    }
+
+    public SseEmitter subscribe(Long showingId) {
+        // 確認場次存在
+        getSeatMap(showingId);
+        return seatEventPublisher.subscribe(showingId);
+    }
+
+    public void evict(Long showingId) {
+        seatMaps.remove(showingId);
+        fullSnapshots.remove(showingId);
+    }
+
+    // 移除已散場的場次；散場後仍被查詢時會重新載入，下次清除時再移除
+    void evictEnded() {
+        LocalDateTime now = LocalDateTime.now();
+        seatMaps.values().removeIf(seatMap -> seatMap.getEndsAt().isBefore(now));
+        fullSnapshots.keySet().removeIf(showingId -> !seatMaps.containsKey(showingId));
+    }
+
+    private ShowingSeatMap load(Long showingId) {
+        Showing showing = showingRepository.findWithVenueByShowingId(showingId)
+                .orElseThrow(() -> new BookingException("場次不存在"));
+        return ShowingSeatMap.load(
+                showing,
+                seatRepository.findByVenueVenueId(showing.getVenue().getVenueId()),
+                bookingRepository.findBookedSeatIds(showingId)
+        );
+    }
+
+    private void publish(ShowingSeatMap seatMap, SeatEventResponse.EventType eventType, Collection<Long> seatIds) {
+        if (seatIds.isEmpty()) {
+            return;
+        }
+        seatEventPublisher.publish(SeatEventResponse.builder()
+                .showingId(seatMap.getShowingId())
+                .eventType(eventType)
+                .seatIds(List.copyOf(seatIds))
+                .epoch(seatMap.getEpoch())
+                .version(seatMap.getVersion())
+                .build());
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.repository.ShowingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// 場次剩餘座位數
+// 訂單交易提交後把座位增減記入各場次的 LongAdder，由單一執行緒定期合併成每場次一次增量 UPDATE，
+// 另以對帳工作依訂單明細修正偏差
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShowingSeatCounter {
+
+    private final ShowingRepository showingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.seat-count.flush-millis:1000}")
+    private long flushMillis;
+
+    @Value("${app.booking.seat-count.reconcile-minutes:10}")
+    private long reconcileMinutes;
+
+    private final ConcurrentMap<Long, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "showing-seat-counter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::reconcileSafely, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flushSafely();
+    }
+
+    // 座位被訂走，交易提交後才計入
+    public void seatsBooked(Long showingId, int count) {
+        record(showingId, -count);
+    }
+
+    // 座位被釋放，交易提交後才計入
+    public void seatsReleased(Long showingId, int count) {
+        record(showingId, count);
+    }
+
+    public void flush() {
+        List<Map.Entry<Long, Integer>> batch = new ArrayList<>();
+        pendingDeltas.forEach((showingId, adder) -> {
+            int delta = (int) adder.sumThenReset();
+            if (delta != 0) {
+                batch.add(Map.entry(showingId, delta));
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(entry ->
+                    showingRepository.adjustAvailableSeats(entry.getKey(), entry.getValue())));
+        } catch (RuntimeException e) {
+            // 寫入失敗時把增量加回去，下次合併重試
+            batch.forEach(entry -> add(entry.getKey(), entry.getValue()));
+            throw e;
+        }
+    }
+
+    // 以訂單明細重算剩餘座位，修正程序中斷或多節點寫入造成的偏差
+    public int reconcile() {
+        flush();
+
+        int corrected = 0;
+        for (Map<String, Object> row : showingRepository.findSeatCounts(LocalDate.now())) {
+            Long showingId = (Long) row.get("showingId");
+            int expected = (Integer) row.get("totalCapacity") - ((Long) row.get("bookedSeats")).intValue();
+            LongAdder pending = pendingDeltas.get(showingId);
+            if (pending != null && pending.sum() != 0) {
+                // 對帳期間有新變動，留待下一輪
+                continue;
+            }
+            if (!Integer.valueOf(expected).equals(row.get("availableSeats"))) {
+                transactionTemplate.executeWithoutResult(status ->
+                        showingRepository.updateAvailableSeats(showingId, expected));
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            log.info("場次剩餘座位對帳修正 {} 筆", corrected);
+        }
+        return corrected;
+    }
+
+    private void record(Long showingId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(showingId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(showingId, delta);
+            }
+        });
+    }
+
+    private void add(Long showingId, int delta) {
+        pendingDeltas.computeIfAbsent(showingId, key -> new LongAdder()).add(delta);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("場次剩餘座位寫入失敗", e);
+        }
+    }
+
+    private void reconcileSafely() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("場次剩餘座位對帳失敗", e);
+        }
+    }
+}
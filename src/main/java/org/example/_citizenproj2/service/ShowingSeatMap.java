@@ -0,0 +1,414 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.model.Seat;
+import org.example._citizenproj2.model.Showing;
+import org.example._citizenproj2.model.Venue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 單一場次的座位佔用狀態
+// 以影廳 seatRows × seatColumns 的格位作為索引，每個格位佔用一個位元
+public class ShowingSeatMap {
+
+    private final Long showingId;
+    private final int rows;
+    private final int columns;
+
+    // 排索引 -> 排號
+    private final String[] rowLabels;
+
+    // seatId -> 格位索引
+    private final Map<Long, Integer> seatIndex;
+
+    // 格位索引 -> 座位資訊 (沒有座位的格位為 null)
+    private final Long[] seatIds;
+    private final Seat.SeatType[] seatTypes;
+    private final Seat.Status[] seatStatuses;
+
+    // 已被訂走的格位
+    private final AtomicLongArray occupied;
+
+    // 載入時間，重新載入後版本號從頭計算
+    private final long epoch;
+
+    // 散場時間，之後即可從記憶體移除
+    private final LocalDateTime endsAt;
+
+    // 每次佔用狀態改變遞增；cellVersions 記錄各格位最後一次改變的版本
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLongArray cellVersions;
+
+    // 每排的連續空位索引，排內有變動時遞增 rowVersions，查詢時才重新計算
+    private final AtomicLongArray rowVersions;
+    private final AtomicReferenceArray<RowRuns> rowRuns;
+
+    // 座位配置在載入後不再改變，只編碼一次
+    private String layout;
+
+    private ShowingSeatMap(Long showingId, LocalDateTime endsAt, int rows, int columns, String[] rowLabels) {
+        this.showingId = showingId;
+        this.endsAt = endsAt;
+        this.rows = rows;
+        this.columns = columns;
+        this.rowLabels = rowLabels;
+        this.seatIndex = new HashMap<>();
+        this.seatIds = new Long[rows * columns];
+        this.seatTypes = new Seat.SeatType[rows * columns];
+        this.seatStatuses = new Seat.Status[rows * columns];
+        this.occupied = new AtomicLongArray((rows * columns + 63) >>> 6);
+        this.epoch = System.currentTimeMillis();
+        this.cellVersions = new AtomicLongArray(rows * columns);
+        this.rowVersions = new AtomicLongArray(rows);
+        this.rowRuns = new AtomicReferenceArray<>(rows);
+    }
+
+    public static ShowingSeatMap load(Showing showing, List<Seat> seats, Collection<Long> bookedSeatIds) {
+        Venue venue = showing.getVenue();
+
+        // 排號依字串排序，與原本 ORDER BY s.rowNumber 一致
+        TreeSet<String> labels = new TreeSet<>();
+        int maxColumn = 0;
+        for (Seat seat : seats) {
+            labels.add(seat.getRowNumber());
+            maxColumn = Math.max(maxColumn, seat.getColumnNumber());
+        }
+
+        int rows = Math.max(venue.getSeatRows(), labels.size());
+        int columns = Math.max(venue.getSeatColumns(), maxColumn);
+        String[] rowLabels = labels.toArray(new String[rows]);
+
+        Map<String, Integer> rowIndex = new HashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            rowIndex.put(rowLabels[i], i);
+        }
+
+        // 結束時間早於開始時間表示跨午夜
+        LocalDateTime endsAt = showing.getEndDateTime();
+        if (showing.getEndTime().isBefore(showing.getStartTime())) {
+            endsAt = endsAt.plusDays(1);
+        }
+
+        ShowingSeatMap seatMap = new ShowingSeatMap(showing.getShowingId(), endsAt, rows, columns, rowLabels);
+        for (Seat seat : seats) {
+            int index = rowIndex.get(seat.getRowNumber()) * columns + seat.getColumnNumber() - 1;
+            seatMap.seatIndex.put(seat.getSeatId(), index);
+            seatMap.seatIds[index] = seat.getSeatId();
+            seatMap.seatTypes[index] = seat.getSeatType();
+            seatMap.seatStatuses[index] = seat.getStatus();
+        }
+        for (Long seatId : bookedSeatIds) {
+            Integer index = seatMap.seatIndex.get(seatId);
+            if (index != null) {
+                seatMap.set(index);
+            }
+        }
+        seatMap.layout = seatMap.encodeLayout();
+        return seatMap;
+    }
+
+    public Long getShowingId() {
+        return showingId;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public LocalDateTime getEndsAt() {
+        return endsAt;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public List<String> getRowLabels() {
+        return Arrays.asList(rowLabels);
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public boolean contains(Long seatId) {
+        return seatIndex.containsKey(seatId);
+    }
+
+    public boolean isAvailable(Long seatId) {
+        Integer index = seatIndex.get(seatId);
+        return index != null && isAvailable(index);
+    }
+
+    public boolean areAvailable(Collection<Long> seatIds) {
+        for (Long seatId : seatIds) {
+            if (!isAvailable(seatId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 以 CAS 一次佔用多個座位，全部成功或全部不佔用
+    // 同一個 word 內的座位合併成一次 CAS，依 word 順序處理
+    public boolean tryClaim(Collection<Long> seatIds) {
+        TreeMap<Integer, Long> masks = new TreeMap<>();
+        for (Long seatId : seatIds) {
+            Integer index = seatIndex.get(seatId);
+            if (index == null || seatStatuses[index] != Seat.Status.ACTIVE) {
+                return false;
+            }
+            masks.merge(index >>> 6, 1L << index, (a, b) -> a | b);
+        }
+
+        List<Map.Entry<Integer, Long>> claimed = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : masks.entrySet()) {
+            int word = entry.getKey();
+            long mask = entry.getValue();
+            while (true) {
+                long current = occupied.get(word);
+                if ((current & mask) != 0) {
+                    // 有座位已被佔用，退回這次已佔用的部分
+                    for (Map.Entry<Integer, Long> done : claimed) {
+                        long doneMask = done.getValue();
+                        occupied.getAndUpdate(done.getKey(), value -> value & ~doneMask);
+                    }
+                    return false;
+                }
+                if (occupied.compareAndSet(word, current, current | mask)) {
+                    claimed.add(entry);
+                    break;
+                }
+            }
+        }
+
+        for (Long seatId : seatIds) {
+            markChanged(seatIndex.get(seatId));
+        }
+        return true;
+    }
+
+    public String getSeatNumber(Long seatId) {
+        Integer index = seatIndex.get(seatId);
+        if (index == null) {
+            return String.valueOf(seatId);
+        }
+        return rowLabels[index / columns] + (index % columns + 1);
+    }
+
+    public void occupy(Collection<Long> seatIds) {
+        for (Long seatId : seatIds) {
+            Integer index = seatIndex.get(seatId);
+            if (index != null) {
+                set(index);
+                markChanged(index);
+            }
+        }
+    }
+
+    public void release(Collection<Long> seatIds) {
+        for (Long seatId : seatIds) {
+            Integer index = seatIndex.get(seatId);
+            if (index != null) {
+                clear(index);
+                markChanged(index);
+            }
+        }
+    }
+
+    public int getAvailableCount() {
+        int count = 0;
+        for (int i = 0; i < seatIds.length; i++) {
+            if (isAvailable(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 可用座位號碼，格式與 CONCAT(s.rowNumber, s.columnNumber) 相同
+    public List<String> getAvailableSeatNumbers() {
+        List<String> seatNumbers = new ArrayList<>();
+        for (int i = 0; i < seatIds.length; i++) {
+            if (isAvailable(i)) {
+                seatNumbers.add(rowLabels[i / columns] + (i % columns + 1));
+            }
+        }
+        return seatNumbers;
+    }
+
+    // 佔用位元，與 BitSet.toByteArray 相同的位元順序
+    public byte[] encodeOccupancy() {
+        ByteBuffer buffer = ByteBuffer.allocate(occupied.length() * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < occupied.length(); i++) {
+            buffer.putLong(occupied.get(i));
+        }
+        return Arrays.copyOf(buffer.array(), (seatIds.length + 7) >>> 3);
+    }
+
+    // 指定版本之後改變過的格位 -> 目前是否已佔用
+    public Map<Integer, Boolean> changesSince(long sinceVersion) {
+        Map<Integer, Boolean> changes = new LinkedHashMap<>();
+        for (int i = 0; i < seatIds.length; i++) {
+            if (cellVersions.get(i) > sinceVersion) {
+                changes.put(i, isSet(i));
+            }
+        }
+        return changes;
+    }
+
+    private String encodeLayout() {
+        StringBuilder builder = new StringBuilder(seatIds.length);
+        for (int i = 0; i < seatIds.length; i++) {
+            if (seatIds[i] == null) {
+                builder.append('.');
+                continue;
+            }
+            char code = switch (seatTypes[i]) {
+                case REGULAR -> 'R';
+                case VIP -> 'V';
+                case COUPLE -> 'C';
+                case DISABLED -> 'D';
+            };
+            builder.append(seatStatuses[i] == Seat.Status.ACTIVE ? code : Character.toLowerCase(code));
+        }
+        return builder.toString();
+    }
+
+    // 找出最佳的 count 個相鄰座位，沒有符合的區塊時回傳空列表
+    // 分數越低越好：越接近中間欄與後方 2/3 排越好，未指定座位類型時優先一般座位
+    // 只是建議結果，實際佔用仍需經過 tryClaim
+    public List<Long> findBestSeats(int count, Seat.SeatType seatType) {
+        double idealRow = (rows - 1) * 2.0 / 3;
+        double centerColumn = (columns - 1) / 2.0;
+
+        int bestStart = -1;
+        double bestScore = Double.MAX_VALUE;
+        for (int row = 0; row < rows; row++) {
+            RowRuns runs = getRowRuns(row);
+            if (runs.maxRun < count) {
+                continue;
+            }
+            double rowScore = Math.abs(row - idealRow) / rows;
+
+            for (int r = 0; r < runs.starts.length; r++) {
+                for (int column = runs.starts[r]; column + count <= runs.starts[r] + runs.lengths[r]; column++) {
+                    int start = row * columns + column;
+                    double typeScore = scoreSeatTypes(start, count, seatType);
+                    if (typeScore < 0) {
+                        continue;
+                    }
+                    double columnScore = Math.abs(column + (count - 1) / 2.0 - centerColumn) / columns;
+                    double score = rowScore + columnScore + typeScore;
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestStart = start;
+                    }
+                }
+            }
+        }
+
+        if (bestStart < 0) {
+            return Collections.emptyList();
+        }
+        List<Long> result = new ArrayList<>(count);
+        for (int i = bestStart; i < bestStart + count; i++) {
+            result.add(seatIds[i]);
+        }
+        return result;
+    }
+
+    // 指定座位類型時整個區塊必須相同；未指定時排除無障礙與雙人座，VIP 略微扣分
+    private double scoreSeatTypes(int start, int count, Seat.SeatType seatType) {
+        double score = 0;
+        for (int i = start; i < start + count; i++) {
+            Seat.SeatType type = seatTypes[i];
+            if (seatType != null) {
+                if (type != seatType) {
+                    return -1;
+                }
+            } else if (type == Seat.SeatType.DISABLED || type == Seat.SeatType.COUPLE) {
+                return -1;
+            } else if (type == Seat.SeatType.VIP) {
+                score += 0.1 / count;
+            }
+        }
+        return score;
+    }
+
+    private RowRuns getRowRuns(int row) {
+        long rowVersion = rowVersions.get(row);
+        RowRuns runs = rowRuns.get(row);
+        if (runs != null && runs.version == rowVersion) {
+            return runs;
+        }
+
+        List<int[]> found = new ArrayList<>();
+        int maxRun = 0;
+        int runStart = -1;
+        for (int column = 0; column <= columns; column++) {
+            boolean free = column < columns && isAvailable(row * columns + column);
+            if (free && runStart < 0) {
+                runStart = column;
+            } else if (!free && runStart >= 0) {
+                found.add(new int[]{runStart, column - runStart});
+                maxRun = Math.max(maxRun, column - runStart);
+                runStart = -1;
+            }
+        }
+
+        runs = new RowRuns(rowVersion, maxRun,
+                found.stream().mapToInt(run -> run[0]).toArray(),
+                found.stream().mapToInt(run -> run[1]).toArray());
+        rowRuns.set(row, runs);
+        return runs;
+    }
+
+    // 先寫入格位版本再推進全域版本，讀到版本 V 時所有 <= V 的改變都已可見
+    private void markChanged(int index) {
+        rowVersions.incrementAndGet(index / columns);
+        while (true) {
+            long current = version.get();
+            cellVersions.set(index, current + 1);
+            if (version.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isAvailable(int index) {
+        return seatIds[index] != null
+                && seatStatuses[index] == Seat.Status.ACTIVE
+                && !isSet(index);
+    }
+
+    private boolean isSet(int index) {
+        return (occupied.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private void set(int index) {
+        occupied.getAndUpdate(index >>> 6, word -> word | (1L << index));
+    }
+
+    private void clear(int index) {
+        occupied.getAndUpdate(index >>> 6, word -> word & ~(1L << index));
+    }
+
+    // 單排的連續空位：起始欄與長度
+    private record RowRuns(long version, int maxRun, int[] starts, int[] lengths) {
+    }
+}
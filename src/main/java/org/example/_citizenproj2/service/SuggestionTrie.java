@@ -0,0 +1,141 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.dto.response.SuggestionResponse;
+
+import java.util.*;
+
+// 不可變的壓縮前綴樹，單一子節點的鏈合併成一條邊
+// 每個節點預先算好子樹內分數最高的 K 筆建議，查詢只需走完前綴，時間與資料量無關
+final class SuggestionTrie {
+
+    private static final Suggestion[] NONE = new Suggestion[0];
+
+    private final Node root;
+
+    private SuggestionTrie(Node root) {
+        this.root = root;
+    }
+
+    static Builder builder(int topK) {
+        return new Builder(topK);
+    }
+
+    List<Suggestion> lookup(String normalizedPrefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < normalizedPrefix.length()) {
+            Node child = node.child(normalizedPrefix.charAt(i));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            String label = child.label;
+            int j = 0;
+            while (j < label.length() && i < normalizedPrefix.length()) {
+                if (label.charAt(j++) != normalizedPrefix.charAt(i++)) {
+                    return Collections.emptyList();
+                }
+            }
+            node = child;
+        }
+        return Arrays.asList(node.top).subList(0, Math.min(limit, node.top.length));
+    }
+
+    record Suggestion(String text, SuggestionResponse.SuggestionType type, Long movieId, long score) {
+    }
+
+    private static final class Node {
+        private final String label;
+        private final char[] firstChars;
+        private final Node[] children;
+        private final Suggestion[] top;
+
+        private Node(String label, char[] firstChars, Node[] children, Suggestion[] top) {
+            this.label = label;
+            this.firstChars = firstChars;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(firstChars, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    static final class Builder {
+        private static final Comparator<Suggestion> RANKING = Comparator
+                .comparingLong(Suggestion::score).reversed()
+                .thenComparing(Suggestion::text);
+
+        private final int topK;
+        private final MutableNode root = new MutableNode();
+
+        private Builder(int topK) {
+            this.topK = topK;
+        }
+
+        Builder add(String normalizedKey, Suggestion suggestion) {
+            if (normalizedKey.isEmpty()) {
+                return this;
+            }
+            MutableNode node = root;
+            for (int i = 0; i < normalizedKey.length(); i++) {
+                node = node.children.computeIfAbsent(normalizedKey.charAt(i), key -> new MutableNode());
+            }
+            node.suggestions.add(suggestion);
+            return this;
+        }
+
+        SuggestionTrie build() {
+            return new SuggestionTrie(freeze("", root, false));
+        }
+
+        private Node freeze(String label, MutableNode node, boolean compress) {
+            StringBuilder edge = new StringBuilder(label);
+            // 沒有建議且只有一個子節點時併入同一條邊，根節點除外
+            while (compress && node.suggestions.isEmpty() && node.children.size() == 1) {
+                Map.Entry<Character, MutableNode> only = node.children.firstEntry();
+                edge.append(only.getKey());
+                node = only.getValue();
+            }
+
+            char[] firstChars = new char[node.children.size()];
+            Node[] children = new Node[node.children.size()];
+            int index = 0;
+            for (Map.Entry<Character, MutableNode> entry : node.children.entrySet()) {
+                firstChars[index] = entry.getKey();
+                children[index] = freeze(String.valueOf(entry.getKey()), entry.getValue(), true);
+                index++;
+            }
+            return new Node(edge.toString(), firstChars, children, topOf(node.suggestions, children));
+        }
+
+        private Suggestion[] topOf(List<Suggestion> own, Node[] children) {
+            List<Suggestion> candidates = new ArrayList<>(own);
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            if (candidates.isEmpty()) {
+                return NONE;
+            }
+            candidates.sort(RANKING);
+            // 同一建議可能從多個鍵（例如英文名的每個單字）進入子樹
+            Set<Suggestion> seen = new HashSet<>();
+            List<Suggestion> top = new ArrayList<>(topK);
+            for (Suggestion candidate : candidates) {
+                if (top.size() == topK) {
+                    break;
+                }
+                if (seen.add(candidate)) {
+                    top.add(candidate);
+                }
+            }
+            return top.toArray(NONE);
+        }
+    }
+
+    private static final class MutableNode {
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private final List<Suggestion> suggestions = new ArrayList<>(1);
+    }
+}
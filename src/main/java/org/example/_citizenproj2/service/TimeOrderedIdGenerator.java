@@ -0,0 +1,74 @@
+package org.example._citizenproj2.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64 位元編號：41 位元毫秒時間戳 | 10 位元節點 | 12 位元序號
+// 以 Crockford Base32 編成固定 13 字元，新資料永遠寫在主鍵索引尾端
+// 時間戳與序號合併存在一個 AtomicLong，以 CAS 遞增，不使用鎖；
+// 同一毫秒序號用完時借用下一毫秒，時鐘倒退時沿用上次的時間戳，編號不會重複也不會倒退
+@Slf4j
+@Service
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long node;
+
+    // (時間戳 << SEQUENCE_BITS) | 序號
+    private final AtomicLong state = new AtomicLong();
+
+    public TimeOrderedIdGenerator(@Value("${app.id.node-id:-1}") long nodeId) {
+        this.node = nodeId >= 0 ? nodeId & MAX_NODE : deriveNodeId();
+        log.info("編號產生器節點：{}", node);
+    }
+
+    @Override
+    public String nextId(String prefix) {
+        return prefix + encode(nextValue());
+    }
+
+    long nextValue() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = Math.max(now, current + 1);
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // 未設定 app.id.node-id 時以主機名稱推算，多節點部署應明確設定
+    private static long deriveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE;
+        } catch (UnknownHostException e) {
+            return ProcessHandle.current().pid() & MAX_NODE;
+        }
+    }
+}
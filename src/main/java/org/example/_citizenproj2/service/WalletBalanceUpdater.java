@@ -0,0 +1,170 @@
+package org.example._citizenproj2.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.exception.InsufficientBalanceException;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// 錢包餘額的樂觀更新
+// 先讀取餘額與版本，再以 UPDATE ... WHERE version = ? AND balance + delta >= 0 寫回，不在讀取期間鎖住錢包；
+// 版本不符表示被其他交易搶先，整筆錢包交易回滾，由 inTransaction 在交易外等待後重試
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletBalanceUpdater {
+
+    private final WalletRepository walletRepository;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.wallet.update.max-attempts:5}")
+    private int maxAttempts;
+
+    private Counter conflicts;
+    private Counter exhausted;
+    private DistributionSummary attempts;
+
+    // 錢包交易以 READ COMMITTED 執行，重試時讀到最新提交的版本；其他交易維持資料庫預設隔離等級
+    private TransactionTemplate walletTransaction;
+
+    @PostConstruct
+    public void init() {
+        walletTransaction = new TransactionTemplate(transactionManager);
+        walletTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        conflicts = Counter.builder("wallet.balance.update.conflicts")
+                .description("版本衝突而重試的錢包更新次數")
+                .register(meterRegistry);
+        exhausted = Counter.builder("wallet.balance.update.exhausted")
+                .description("重試次數用盡而失敗的錢包更新")
+                .register(meterRegistry);
+        attempts = DistributionSummary.builder("wallet.balance.update.attempts")
+                .description("每次錢包更新成功前的嘗試次數")
+                .register(meterRegistry);
+    }
+
+    // 在新的錢包交易中執行，版本衝突時整筆回滾，於交易外等待後重新執行
+    // 已在呼叫端交易中時直接執行，衝突交由最外層交易的擁有者處理
+    public <T> T inTransaction(Supplier<T> operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operation.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = walletTransaction.execute(status -> operation.get());
+                attempts.record(attempt);
+                return result;
+            } catch (WalletException e) {
+                if (!WalletException.CONFLICT.equals(e.getErrorCode())) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("錢包更新衝突，已重試 {} 次", maxAttempts);
+                    throw e;
+                }
+                conflicts.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void inTransaction(Runnable operation) {
+        inTransaction(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    // 回傳更新後的餘額與版本；版本不符時拋出 WALLET_CONFLICT，由 inTransaction 重試
+    @Transactional
+    public BalanceUpdate apply(Long walletId, BalanceChange change) {
+        Map<String, Object> snapshot = walletRepository.findBalanceSnapshot(walletId)
+                .orElseThrow(() -> new WalletException("錢包不存在"));
+        BigDecimal balance = (BigDecimal) snapshot.get("balance");
+        validate(snapshot, balance, change);
+
+        Long version = (Long) snapshot.get("version");
+        int updated = walletRepository.applyBalanceChange(
+                walletId,
+                version,
+                change.balanceDelta(),
+                change.depositDelta(),
+                change.spentDelta(),
+                LocalDateTime.now()
+        );
+        if (updated != 1) {
+            throw WalletException.walletConflict();
+        }
+        return new BalanceUpdate(balance.add(change.balanceDelta()), version + 1);
+    }
+
+    private void validate(Map<String, Object> snapshot, BigDecimal balance, BalanceChange change) {
+        if (change.requireActive() && snapshot.get("walletStatus") != Wallet.WalletStatus.ACTIVE) {
+            throw new WalletException("錢包狀態不可用");
+        }
+        if (balance.add(change.balanceDelta()).signum() < 0) {
+            BigDecimal amount = change.balanceDelta().negate();
+            throw new InsufficientBalanceException(
+                    String.format("餘額不足。當前餘額: %s, 需要金額: %s", balance, amount),
+                    balance,
+                    amount
+            );
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L << Math.min(attempt, 5)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalletException("錢包更新被中斷");
+        }
+    }
+
+    // 更新後的餘額與錢包版本，版本即帳本中該筆異動的序號
+    public record BalanceUpdate(BigDecimal balance, Long version) {
+    }
+
+    // 一次更新的餘額與累計金額變動
+    public record BalanceChange(BigDecimal balanceDelta,
+                                BigDecimal depositDelta,
+                                BigDecimal spentDelta,
+                                boolean requireActive) {
+
+        public static BalanceChange deposit(BigDecimal amount) {
+            return new BalanceChange(amount, amount, BigDecimal.ZERO, true);
+        }
+
+        public static BalanceChange spend(BigDecimal amount) {
+            return new BalanceChange(amount.negate(), BigDecimal.ZERO, amount, true);
+        }
+
+        public static BalanceChange debit(BigDecimal amount) {
+            return new BalanceChange(amount.negate(), BigDecimal.ZERO, BigDecimal.ZERO, true);
+        }
+
+        public static BalanceChange credit(BigDecimal amount, boolean requireActive) {
+            return new BalanceChange(amount, BigDecimal.ZERO, BigDecimal.ZERO, requireActive);
+        }
+    }
+}
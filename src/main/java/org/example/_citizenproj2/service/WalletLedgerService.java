@@ -0,0 +1,143 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.model.WalletBalanceSnapshot;
+import org.example._citizenproj2.repository.TransactionRepository;
+import org.example._citizenproj2.repository.WalletBalanceSnapshotRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 錢包帳本
+// 交易紀錄只新增不修改，以錢包版本為序號；定期為有異動的錢包寫入餘額快照，
+// 重建與稽核只讀最新快照與其後的交易，不必加總整段歷史
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletLedgerService {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.wallet.ledger.snapshot-minutes:60}")
+    private long snapshotMinutes;
+
+    private ScheduledExecutorService scheduler;
+    private LocalDateTime lastSnapshotRun;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-ledger-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotActiveWallets, snapshotMinutes, snapshotMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+    }
+
+    // 由最新快照加上其後交易重建餘額，截至 toVersion
+    public BigDecimal reconstructBalance(Long walletId, Long toVersion) {
+        WalletBalanceSnapshot snapshot = snapshotRepository.findFirstByWalletIdOrderByWalletVersionDesc(walletId)
+                .filter(latest -> latest.getWalletVersion() <= toVersion)
+                .orElse(null);
+        Map<String, Object> tail = sumTail(walletId, snapshot, toVersion);
+        return base(snapshot).add((BigDecimal) tail.get("amount"));
+    }
+
+    // 比對錢包餘額與帳本重建結果
+    public Map<String, Object> audit(Long walletId) {
+        Map<String, Object> wallet = walletRepository.findBalanceSnapshot(walletId)
+                .orElseThrow(() -> new WalletException("錢包不存在"));
+        BigDecimal balance = (BigDecimal) wallet.get("balance");
+        Long version = (Long) wallet.get("version");
+
+        WalletBalanceSnapshot snapshot = snapshotRepository.findFirstByWalletIdOrderByWalletVersionDesc(walletId)
+                .filter(latest -> latest.getWalletVersion() <= version)
+                .orElse(null);
+        Map<String, Object> tail = sumTail(walletId, snapshot, version);
+        BigDecimal ledgerBalance = base(snapshot).add((BigDecimal) tail.get("amount"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("walletId", walletId);
+        result.put("walletVersion", version);
+        result.put("balance", balance);
+        result.put("ledgerBalance", ledgerBalance);
+        result.put("snapshotVersion", snapshot != null ? snapshot.getWalletVersion() : null);
+        result.put("tailTransactions", tail.get("count"));
+        result.put("consistent", balance.compareTo(ledgerBalance) == 0);
+        return result;
+    }
+
+    // 以上一份快照加上其後交易產生新快照，沒有新交易時沿用舊快照
+    public WalletBalanceSnapshot takeSnapshot(Long walletId) {
+        return transactionTemplate.execute(status -> {
+            Long version = (Long) walletRepository.findBalanceSnapshot(walletId)
+                    .orElseThrow(() -> new WalletException("錢包不存在"))
+                    .get("version");
+
+            WalletBalanceSnapshot previous = snapshotRepository.findFirstByWalletIdOrderByWalletVersionDesc(walletId)
+                    .orElse(null);
+            if (previous != null && previous.getWalletVersion() >= version) {
+                return previous;
+            }
+
+            Map<String, Object> tail = sumTail(walletId, previous, version);
+            return snapshotRepository.save(WalletBalanceSnapshot.builder()
+                    .walletId(walletId)
+                    .walletVersion(version)
+                    .balance(base(previous).add((BigDecimal) tail.get("amount")))
+                    .transactionCount((previous != null ? previous.getTransactionCount() : 0L)
+                            + (Long) tail.get("count"))
+                    .build());
+        });
+    }
+
+    private void snapshotActiveWallets() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = lastSnapshotRun != null ? lastSnapshotRun : startedAt.minusMinutes(snapshotMinutes);
+        try {
+            int count = 0;
+            for (Wallet wallet : walletRepository.findActiveWallets(since)) {
+                takeSnapshot(wallet.getWalletId());
+                count++;
+            }
+            lastSnapshotRun = startedAt;
+            log.debug("已為 {} 個錢包建立餘額快照", count);
+        } catch (RuntimeException e) {
+            log.error("錢包餘額快照失敗", e);
+        }
+    }
+
+    private Map<String, Object> sumTail(Long walletId, WalletBalanceSnapshot snapshot, Long toVersion) {
+        return transactionRepository.sumLedger(
+                walletId,
+                snapshot != null ? snapshot.getWalletVersion() : null,
+                toVersion
+        );
+    }
+
+    private BigDecimal base(WalletBalanceSnapshot snapshot) {
+        return snapshot != null ? snapshot.getBalance() : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,262 @@
+package org.example._citizenproj2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.model.WalletCredit;
+import org.example._citizenproj2.repository.TransactionRepository;
+import org.example._citizenproj2.repository.WalletCreditRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// 高流量錢包（企業、市府補助帳戶）的單一寫入者佇列
+// 每個錢包一個佇列，同時間只有一個工作者處理；排隊中的入帳合併為一次餘額 UPDATE
+// 入帳由呼叫端交易先寫入 wallet_credits，佇列只保存編號；寫入時整批新增 COMPLETED 交易紀錄並刪除待入帳項目
+// 帳本只新增不修改，重啟時由 wallet_credits 重新排入未完成者
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletMailbox {
+
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final WalletBalanceUpdater walletBalanceUpdater;
+    private final TransactionRepository transactionRepository;
+    private final WalletCreditRepository walletCreditRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletStatisticsService walletStatisticsService;
+
+    @Value("${app.wallet.mailbox.hot-wallet-ids:}")
+    private Set<Long> hotWalletIds;
+
+    @Value("${app.wallet.mailbox.workers:4}")
+    private int workerCount;
+
+    @Value("${app.wallet.mailbox.max-attempts:5}")
+    private int maxAttempts;
+
+    private final ConcurrentMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+    private ScheduledExecutorService retryScheduler;
+
+    @PostConstruct
+    public void start() {
+        workers = Executors.newFixedThreadPool(workerCount, daemon("wallet-mailbox"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(daemon("wallet-mailbox-retry"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        retryScheduler.shutdown();
+        workers.shutdown();
+    }
+
+    public boolean isHot(Long walletId) {
+        return hotWalletIds.contains(walletId);
+    }
+
+    // 待入帳項目須已寫入；future 以新增的交易紀錄完成
+    public CompletableFuture<Transaction> submit(WalletCredit credit) {
+        Mailbox mailbox = mailboxes.computeIfAbsent(credit.getWalletId(), Mailbox::new);
+        PendingCredit pending = new PendingCredit(credit.getCreditId(), new CompletableFuture<>());
+        mailbox.queue.add(pending);
+        mailbox.schedule();
+        return pending.future;
+    }
+
+    // 重啟前已提交但尚未入帳的項目重新排入
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingCredits() {
+        List<WalletCredit> pending = walletCreditRepository.findByStatusOrderByCreatedAt(WalletCredit.Status.PENDING);
+        for (WalletCredit credit : pending) {
+            submit(credit);
+        }
+        if (!pending.isEmpty()) {
+            log.info("重新排入 {} 筆未完成的佇列入帳", pending.size());
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            List<PendingCredit> batch = new ArrayList<>();
+            PendingCredit pending;
+            while (batch.size() < MAX_BATCH_SIZE && (pending = mailbox.queue.poll()) != null) {
+                batch.add(pending);
+            }
+
+            if (batch.isEmpty()) {
+                mailbox.running.set(false);
+                // 釋放後又有新項目進來，且沒有其他工作者接手時繼續處理
+                if (mailbox.queue.isEmpty() || !mailbox.running.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            process(mailbox, batch);
+        }
+    }
+
+    // 批次失敗時對半拆分，找出無法寫入的那一筆，其餘照常入帳
+    private void process(Mailbox mailbox, List<PendingCredit> batch) {
+        Map<String, Transaction> written;
+        try {
+            written = write(mailbox.walletId, batch);
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                int middle = batch.size() / 2;
+                process(mailbox, batch.subList(0, middle));
+                process(mailbox, batch.subList(middle, batch.size()));
+            } else {
+                retryOrFail(mailbox, batch.get(0), e);
+            }
+            return;
+        }
+        complete(batch, written);
+    }
+
+    private Map<String, Transaction> write(Long walletId, List<PendingCredit> batch) {
+        List<String> creditIds = batch.stream().map(PendingCredit::creditId).toList();
+
+        // 不論批次大小，固定為鎖定、餘額 UPDATE、交易紀錄批次 INSERT、DELETE 與統計彙總幾個語句
+        return walletBalanceUpdater.inTransaction(() -> {
+            List<WalletCredit> credits = walletCreditRepository.lockPending(creditIds);
+            if (credits.isEmpty()) {
+                return Map.of();
+            }
+            BigDecimal total = credits.stream()
+                    .map(WalletCredit::getAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            WalletBalanceUpdater.BalanceUpdate update = walletBalanceUpdater.apply(walletId,
+                    WalletBalanceUpdater.BalanceChange.credit(total, false));
+
+            // 由合併後的餘額往回推算每筆交易當下的餘額，同批交易共用一個錢包版本
+            LocalDateTime now = LocalDateTime.now();
+            BigDecimal running = update.balance().subtract(total);
+            List<Transaction> transactions = new ArrayList<>(credits.size());
+            for (WalletCredit credit : credits) {
+                running = running.add(credit.getAmount());
+                transactions.add(toTransaction(credit, running, update.version(), now));
+            }
+            transactionRepository.saveAll(transactions);
+            walletCreditRepository.deleteByCreditIds(
+                    credits.stream().map(WalletCredit::getCreditId).toList());
+            walletStatisticsService.record(transactions);
+            return transactions.stream()
+                    .collect(Collectors.toMap(Transaction::getTransactionId, Function.identity()));
+        });
+    }
+
+    private Transaction toTransaction(WalletCredit credit, BigDecimal balance, Long walletVersion,
+                                      LocalDateTime transactionTime) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(credit.getCreditId());
+        transaction.setWallet(walletRepository.getReferenceById(credit.getWalletId()));
+        transaction.setAmount(credit.getAmount());
+        transaction.setBalance(balance);
+        transaction.setWalletVersion(walletVersion);
+        transaction.setTransactionType(credit.getTransactionType());
+        transaction.setDescription(credit.getDescription());
+        transaction.setReferenceId(credit.getReferenceId());
+        transaction.setStatus(Transaction.Status.COMPLETED);
+        transaction.setTransactionTime(transactionTime);
+        return transaction;
+    }
+
+    // 單筆失敗時延遲重試，不阻塞同錢包的其他入帳；超過次數標記為 FAILED 待人工處理
+    private void retryOrFail(Mailbox mailbox, PendingCredit credit, RuntimeException error) {
+        int attempt = ++credit.attempts;
+        if (attempt < maxAttempts) {
+            log.warn("錢包 {} 入帳 {} 第 {} 次失敗，稍後重試: {}",
+                    mailbox.walletId, credit.creditId, attempt, error.getMessage());
+            retryScheduler.schedule(() -> {
+                mailbox.queue.add(credit);
+                mailbox.schedule();
+            }, RETRY_DELAY_MILLIS * attempt, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        log.error("錢包 {} 入帳 {} 重試 {} 次仍失敗，標記為 FAILED",
+                mailbox.walletId, credit.creditId, attempt, error);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    walletCreditRepository.markFailed(credit.creditId));
+        } catch (RuntimeException e) {
+            // 仍為 PENDING，下次啟動時重新排入
+            log.error("入帳 {} 無法標記為 FAILED", credit.creditId, e);
+        }
+        credit.future.completeExceptionally(new WalletException("入帳失敗，已轉人工處理", "CREDIT_FAILED"));
+    }
+
+    private void complete(List<PendingCredit> batch, Map<String, Transaction> written) {
+        for (PendingCredit credit : batch) {
+            Transaction transaction = written.get(credit.creditId);
+            if (transaction == null) {
+                // 已由其他節點或重複排入的項目寫入帳本
+                transaction = transactionRepository.findById(credit.creditId).orElse(null);
+            }
+            if (transaction != null) {
+                credit.future.complete(transaction);
+            } else {
+                credit.future.completeExceptionally(new WalletException("入帳失敗，已轉人工處理", "CREDIT_FAILED"));
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Mailbox {
+        private final Long walletId;
+        private final Deque<PendingCredit> queue = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private Mailbox(Long walletId) {
+            this.walletId = walletId;
+        }
+
+        private void schedule() {
+            if (running.compareAndSet(false, true)) {
+                workers.execute(() -> drain(this));
+            }
+        }
+    }
+
+    private static final class PendingCredit {
+        private final String creditId;
+        private final CompletableFuture<Transaction> future;
+        private int attempts;
+
+        private PendingCredit(String creditId, CompletableFuture<Transaction> future) {
+            this.creditId = creditId;
+            this.future = future;
+        }
+
+        private String creditId() {
+            return creditId;
+        }
+    }
+}
@@ -1,38 +1,61 @@
 package org.example._citizenproj2.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.example._citizenproj2.dto.request.TransactionRequest;
 import org.example._citizenproj2.dto.request.TransferRequest;
+import org.example._citizenproj2.dto.response.TransactionHistoryResponse;
 import org.example._citizenproj2.dto.response.TransactionResponse;
 import org.example._citizenproj2.dto.response.WalletResponse;
-import org.example._citizenproj2.exception.InsufficientBalanceException;
 import org.example._citizenproj2.exception.WalletException;
 import org.example._citizenproj2.model.Transaction;
 import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.model.WalletCredit;
 import org.example._citizenproj2.repository.TransactionRepository;
+import org.example._citizenproj2.repository.WalletCreditRepository;
 import org.example._citizenproj2.repository.WalletRepository;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class WalletService {
 
+    private static final int STATEMENT_FLUSH_ROWS = 500;
+
     private final WalletRepository walletRepository;
     private final TransactionRepository transactionRepository;
+    private final WalletCreditRepository walletCreditRepository;
+    private final WalletBalanceUpdater walletBalanceUpdater;
+    private final WalletMailbox walletMailbox;
+    private final WalletTransferEngine walletTransferEngine;
+    private final WalletLedgerService walletLedgerService;
+    private final WalletStatisticsService walletStatisticsService;
+    private final IdGenerator idGenerator;
+    private final DailyLimitService dailyLimitService;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
 
     @Transactional
     public void createWallet(Long memberId) {
@@ -56,99 +79,181 @@ public class WalletService {
         return convertToWalletResponse(wallet);
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse deposit(Long walletId, TransactionRequest request) {
-        Wallet wallet = getWalletById(walletId);
-        validateWalletStatus(wallet);
-        validateDepositAmount(request.getAmount());
-
-        Transaction transaction = createTransaction(
-                wallet,
-                request.getAmount(),
-                Transaction.TransactionType.DEPOSIT,
-                request.getDescription()
-        );
-
-        wallet.setBalance(wallet.getBalance().add(request.getAmount()));
-        wallet.setTotalDeposit(wallet.getTotalDeposit().add(request.getAmount()));
-        wallet.setLastTransactionTime(LocalDateTime.now());
-        walletRepository.save(wallet);
-
-        return convertToTransactionResponse(transactionRepository.save(transaction));
+        return walletBalanceUpdater.inTransaction(() -> {
+            validateDepositAmount(request.getAmount());
+
+            WalletBalanceUpdater.BalanceUpdate balance = walletBalanceUpdater.apply(walletId,
+                    WalletBalanceUpdater.BalanceChange.deposit(request.getAmount()));
+
+            Transaction transaction = createTransaction(
+                    walletId,
+                    request.getAmount(),
+                    balance,
+                    Transaction.TransactionType.DEPOSIT,
+                    request.getDescription()
+            );
+            return convertToTransactionResponse(saveTransaction(transaction));
+        });
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse withdraw(Long walletId, TransactionRequest request) {
-        Wallet wallet = getWalletById(walletId);
-        validateWalletStatus(wallet);
-        validateWithdrawalAmount(wallet, request.getAmount());
-
-        Transaction transaction = createTransaction(
-                wallet,
-                request.getAmount().negate(),
-                Transaction.TransactionType.WITHDRAWAL,
-                request.getDescription()
-        );
-
-        wallet.setBalance(wallet.getBalance().subtract(request.getAmount()));
-        wallet.setTotalSpent(wallet.getTotalSpent().add(request.getAmount()));
-        wallet.setLastTransactionTime(LocalDateTime.now());
-        walletRepository.save(wallet);
-
-        return convertToTransactionResponse(transactionRepository.save(transaction));
+        return walletBalanceUpdater.inTransaction(() -> {
+            validateWithdrawalAmount(request.getAmount());
+            dailyLimitService.reserve(walletId, request.getAmount());
+
+            WalletBalanceUpdater.BalanceUpdate balance = walletBalanceUpdater.apply(walletId,
+                    WalletBalanceUpdater.BalanceChange.spend(request.getAmount()));
+
+            Transaction transaction = createTransaction(
+                    walletId,
+                    request.getAmount().negate(),
+                    balance,
+                    Transaction.TransactionType.WITHDRAWAL,
+                    request.getDescription()
+            );
+            return convertToTransactionResponse(saveTransaction(transaction));
+        });
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void processPayment(Long memberId, BigDecimal amount, String referenceId) {
-        Wallet wallet = (Wallet) walletRepository.findByMemberMemberId(memberId)
-                .orElseThrow(() -> new WalletException("錢包不存在"));
-
-        validateWalletStatus(wallet);
-        validateBalance(wallet, amount);
+        walletBalanceUpdater.inTransaction(() -> {
+            Long walletId = getWalletIdByMemberId(memberId);
+            dailyLimitService.reserve(walletId, amount);
+
+            WalletBalanceUpdater.BalanceUpdate balance = walletBalanceUpdater.apply(walletId,
+                    WalletBalanceUpdater.BalanceChange.spend(amount));
+
+            Transaction transaction = createTransaction(
+                    walletId,
+                    amount.negate(),
+                    balance,
+                    Transaction.TransactionType.PAYMENT,
+                    "訂票付款"
+            );
+            transaction.setReferenceId(referenceId);
+            saveTransaction(transaction);
+        });
+    }
 
-        Transaction transaction = createTransaction(
-                wallet,
-                amount.negate(),
-                Transaction.TransactionType.PAYMENT,
-                "訂票付款"
-        );
-        transaction.setReferenceId(referenceId);
+    // 團體分攤付款：所有會員錢包以一次 UPDATE 扣款，任一錢包失敗即整筆回滾，交易紀錄批次寫入
+    // 資料庫往返次數固定，不隨人數增加
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void processGroupPayment(Map<Long, BigDecimal> amountsByMember, String referenceId) {
+        walletBalanceUpdater.inTransaction(() -> {
+            List<Map<String, Object>> wallets = walletRepository.findWalletIdsByMemberIds(amountsByMember.keySet());
+            if (wallets.size() != amountsByMember.size()) {
+                throw new WalletException("錢包不存在");
+            }
+
+            Map<Long, BigDecimal> amountsByWallet = new LinkedHashMap<>();
+            for (Map<String, Object> row : wallets) {
+                Long walletId = (Long) row.get("walletId");
+                BigDecimal amount = amountsByMember.get((Long) row.get("memberId"));
+                dailyLimitService.reserve(walletId, amount);
+                amountsByWallet.put(walletId, amount);
+            }
+
+            Map<Long, WalletBalanceUpdater.BalanceUpdate> balances = walletTransferEngine.debitAll(amountsByWallet);
+
+            List<Transaction> transactions = new ArrayList<>(amountsByWallet.size());
+            amountsByWallet.forEach((walletId, amount) -> {
+                Transaction transaction = createTransaction(
+                        walletId,
+                        amount.negate(),
+                        balances.get(walletId),
+                        Transaction.TransactionType.PAYMENT,
+                        "團體訂票付款"
+                );
+                transaction.setReferenceId(referenceId);
+                transactions.add(transaction);
+            });
+            saveTransactions(transactions);
+        });
+    }
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet.setTotalSpent(wallet.getTotalSpent().add(amount));
-        wallet.setLastTransactionTime(LocalDateTime.now());
-        walletRepository.save(wallet);
+    // 高流量錢包的退款由佇列入帳，future 於餘額寫入後完成
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<TransactionResponse> processRefund(Long memberId, BigDecimal amount, String referenceId) {
+        return walletBalanceUpdater.inTransaction(() -> {
+            return refund(getWalletIdByMemberId(memberId), amount, referenceId);
+        });
+    }
 
-        convertToTransactionResponse(transactionRepository.save(transaction));
+    // 依付款紀錄退款，每個付款錢包退回自己支付的金額；沒有付款紀錄時回傳空清單
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CompletableFuture<TransactionResponse>> refundPayments(String referenceId) {
+        return walletBalanceUpdater.inTransaction(() -> {
+            List<Map<String, Object>> payments = transactionRepository.sumPaymentsByWallet(referenceId);
+            List<CompletableFuture<TransactionResponse>> refunds = new ArrayList<>(payments.size());
+            for (Map<String, Object> payment : payments) {
+                // 付款金額為負數
+                BigDecimal amount = ((BigDecimal) payment.get("amount")).negate();
+                refunds.add(refund((Long) payment.get("walletId"), amount, referenceId));
+            }
+            return refunds;
+        });
     }
 
-    @Transactional
-    public TransactionResponse processRefund(Long memberId, BigDecimal amount, String referenceId) {
-        Wallet wallet = (Wallet) walletRepository.findByMemberMemberId(memberId)
-                .orElseThrow(() -> new WalletException("錢包不存在"));
+    private CompletableFuture<TransactionResponse> refund(Long walletId, BigDecimal amount, String referenceId) {
+        if (walletMailbox.isHot(walletId)) {
+            return enqueueCredit(walletId, amount, Transaction.TransactionType.REFUND, "訂票退款", referenceId);
+        }
+
+        WalletBalanceUpdater.BalanceUpdate balance = walletBalanceUpdater.apply(walletId,
+                WalletBalanceUpdater.BalanceChange.credit(amount, false));
 
         Transaction transaction = createTransaction(
-                wallet,
+                walletId,
                 amount,
+                balance,
                 Transaction.TransactionType.REFUND,
                 "訂票退款"
         );
         transaction.setReferenceId(referenceId);
+        return CompletableFuture.completedFuture(convertToTransactionResponse(saveTransaction(transaction)));
+    }
+
+    // 游標分頁，多取一筆判斷是否還有下一頁
+    public TransactionHistoryResponse getTransactionHistory(Long walletId, String cursor, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findLatest(walletId, limit);
+        } else {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            transactions = transactionRepository.findBefore(
+                    walletId, position.transactionTime(), position.transactionId(), limit);
+        }
+
+        boolean hasMore = transactions.size() > size;
+        List<Transaction> page = hasMore ? transactions.subList(0, size) : transactions;
+        Transaction last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return TransactionHistoryResponse.builder()
+                .transactions(page.stream().map(this::convertToTransactionResponse).toList())
+                .nextCursor(hasMore ? HistoryCursor.encode(last) : null)
+                .hasMore(hasMore)
+                .build();
+    }
 
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setLastTransactionTime(LocalDateTime.now());
-        walletRepository.save(wallet);
+    public Map<String, Object> getWalletStatistics(Long walletId) {
+        return walletStatisticsService.getWalletStatistics(walletId);
+    }
 
-        return convertToTransactionResponse(transactionRepository.save(transaction));
+    public List<Map<String, Object>> getDailyStatistics(Long walletId, String startDate, String endDate) {
+        return walletStatisticsService.getDailyStatistics(walletId, LocalDate.parse(startDate), LocalDate.parse(endDate));
     }
 
-    public Page<TransactionResponse> getTransactionHistory(Long walletId, Pageable pageable) {
-        return transactionRepository.findByWalletWalletId(walletId, pageable)
-                .map(this::convertToTransactionResponse);
+    public List<Map<String, Object>> getTypeStatistics(Long walletId, String startDate, String endDate) {
+        return walletStatisticsService.getTypeStatistics(walletId, LocalDate.parse(startDate), LocalDate.parse(endDate));
     }
 
-    public Map<String, Object> getWalletStatistics(Long walletId) {
-        return (Map<String, Object>) transactionRepository.getTransactionStatistics(walletId);
+    // 以最新快照加上其後交易核對餘額
+    public Map<String, Object> auditWallet(Long walletId) {
+        return walletLedgerService.audit(walletId);
     }
 
     public boolean hasEnoughBalance(Long memberId, BigDecimal amount) {
@@ -163,22 +268,70 @@ public class WalletService {
                 .orElseThrow(() -> new WalletException("錢包不存在"));
     }
 
-    private void validateWalletStatus(Wallet wallet) {
-        if (wallet.getWalletStatus() != Wallet.WalletStatus.ACTIVE) {
-            throw new WalletException("錢包狀態不可用");
-        }
+    // 非同步入帳，future 以該筆交易的結果完成
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<TransactionResponse> credit(Long walletId,
+                                                         BigDecimal amount,
+                                                         Transaction.TransactionType type,
+                                                         String description,
+                                                         String referenceId) {
+        return walletBalanceUpdater.inTransaction(() -> {
+            return enqueueCredit(walletId, amount, type, description, referenceId);
+        });
     }
-    private void validateBalance(Wallet wallet, BigDecimal amount) {
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientBalanceException(
-                    String.format("餘額不足。當前餘額: %s, 需要金額: %s",
-                            wallet.getBalance().toString(),
-                            amount.toString()),
-                    wallet.getBalance(),
-                    amount
-            );
+
+    // 入帳先寫入待入帳項目，與扣款或取消一起提交；提交後才排入佇列
+    // 交易紀錄於佇列套用餘額時才新增；佇列中途遺失時，WalletMailbox 於啟動時由資料表重新排入
+    private CompletableFuture<TransactionResponse> enqueueCredit(Long walletId,
+                                                                 BigDecimal amount,
+                                                                 Transaction.TransactionType type,
+                                                                 String description,
+                                                                 String referenceId) {
+        WalletCredit credit = walletCreditRepository.save(WalletCredit.builder()
+                .creditId(idGenerator.nextId(IdGenerator.TRANSACTION_PREFIX))
+                .walletId(walletId)
+                .amount(amount)
+                .transactionType(type)
+                .description(description)
+                .referenceId(referenceId)
+                .build());
+
+        CompletableFuture<TransactionResponse> result = new CompletableFuture<>();
+        Runnable submit = () -> walletMailbox.submit(credit)
+                .thenApply(this::convertToTransactionResponse)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(response);
+                    }
+                });
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit.run();
+            return result;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    result.completeExceptionally(new WalletException("入帳已隨交易回滾"));
+                }
+            }
+        });
+        return result;
+    }
+
+    private Long getWalletIdByMemberId(Long memberId) {
+        return walletRepository.findWalletIdByMemberId(memberId)
+                .orElseThrow(() -> new WalletException("錢包不存在"));
     }
+
     private void validateDepositAmount(BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new WalletException("存款金額必須大於0");
@@ -188,27 +341,39 @@ public class WalletService {
         }
     }
 
-    private void validateWithdrawalAmount(Wallet wallet, BigDecimal amount) {
+    private void validateWithdrawalAmount(BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new WalletException("提款金額必須大於0");
         }
         if (amount.compareTo(new BigDecimal("50000")) > 0) {
             throw new WalletException("單筆提款不能超過50000");
         }
-        validateBalance(wallet, amount);
+    }
+
+    // 交易紀錄與統計彙總在同一交易中寫入
+    private Transaction saveTransaction(Transaction transaction) {
+        saveTransactions(List.of(transaction));
+        return transaction;
+    }
+
+    private void saveTransactions(List<Transaction> transactions) {
+        transactionRepository.saveAll(transactions);
+        walletStatisticsService.record(transactions);
     }
 
     private Transaction createTransaction(
-            Wallet wallet,
+            Long walletId,
             BigDecimal amount,
+            WalletBalanceUpdater.BalanceUpdate update,
             Transaction.TransactionType type,
             String description) {
 
         Transaction transaction = new Transaction();
-        transaction.setTransactionId("TXN" + UUID.randomUUID().toString().substring(0, 8));
-        transaction.setWallet(wallet);
+        transaction.setTransactionId(idGenerator.nextId(IdGenerator.TRANSACTION_PREFIX));
+        transaction.setWallet(walletRepository.getReferenceById(walletId));
         transaction.setAmount(amount);
-        transaction.setBalance(wallet.getBalance().add(amount));
+        transaction.setBalance(update.balance());
+        transaction.setWalletVersion(update.version());
         transaction.setTransactionType(type);
         transaction.setDescription(description);
         transaction.setStatus(Transaction.Status.COMPLETED);
@@ -247,41 +412,55 @@ public class WalletService {
         return wallet.getBalance();
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse transfer(Long walletId, TransferRequest request) {
-        Wallet senderWallet = getWalletById(walletId);
-        Wallet receiverWallet = (Wallet) walletRepository.findByMemberMemberId(request.getReceiverMemberId())
-                .orElseThrow(() -> new WalletException("收款方錢包不存在"));
-
-        validateWalletStatus(senderWallet);
-        validateWalletStatus(receiverWallet);
-        validateBalance(senderWallet, request.getAmount());
-
-        // 建立轉出交易
-        Transaction senderTransaction = createTransaction(
-                senderWallet,
-                request.getAmount().negate(),
-                Transaction.TransactionType.TRANSFER_OUT,
-                "轉帳給 " + receiverWallet.getMember().getEmail()
-        );
-
-        // 建立轉入交易
-        Transaction receiverTransaction = createTransaction(
-                receiverWallet,
-                request.getAmount(),
-                Transaction.TransactionType.TRANSFER_IN,
-                "來自 " + senderWallet.getMember().getEmail() + " 的轉帳"
-        );
-
-        // 更新雙方餘額
-        senderWallet.setBalance(senderWallet.getBalance().subtract(request.getAmount()));
-        receiverWallet.setBalance(receiverWallet.getBalance().add(request.getAmount()));
-
-        walletRepository.save(senderWallet);
-        walletRepository.save(receiverWallet);
-        transactionRepository.save(receiverTransaction);
+        return walletBalanceUpdater.inTransaction(() -> {
+            Wallet senderWallet = getWalletById(walletId);
+            Wallet receiverWallet = walletRepository.findByMember_MemberId(request.getReceiverMemberId())
+                    .orElseThrow(() -> new WalletException("收款方錢包不存在"));
+
+            Long senderWalletId = senderWallet.getWalletId();
+            Long receiverWalletId = receiverWallet.getWalletId();
+            String senderDescription = "轉帳給 " + receiverWallet.getMember().getEmail();
+            String receiverDescription = "來自 " + senderWallet.getMember().getEmail() + " 的轉帳";
+            dailyLimitService.reserve(senderWalletId, request.getAmount());
+
+            // 高流量錢包交由佇列合併入帳，轉出方單獨扣款
+            if (walletMailbox.isHot(receiverWalletId)) {
+                if (receiverWallet.getWalletStatus() != Wallet.WalletStatus.ACTIVE) {
+                    throw new WalletException("錢包狀態不可用");
+                }
+                WalletBalanceUpdater.BalanceUpdate senderBalance = walletBalanceUpdater.apply(senderWalletId,
+                        WalletBalanceUpdater.BalanceChange.debit(request.getAmount()));
+                Transaction senderTransaction = createTransaction(senderWalletId, request.getAmount().negate(),
+                        senderBalance, Transaction.TransactionType.TRANSFER_OUT, senderDescription);
+                enqueueCredit(receiverWalletId, request.getAmount(),
+                        Transaction.TransactionType.TRANSFER_IN, receiverDescription, null);
+                return convertToTransactionResponse(saveTransaction(senderTransaction));
+            }
+
+            // 雙方餘額以一次 UPDATE 更新，兩筆交易紀錄同批寫入
+            WalletTransferEngine.TransferResult result =
+                    walletTransferEngine.transfer(senderWalletId, receiverWalletId, request.getAmount());
+
+            Transaction senderTransaction = createTransaction(
+                    senderWalletId,
+                    request.getAmount().negate(),
+                    result.senderBalance(),
+                    Transaction.TransactionType.TRANSFER_OUT,
+                    senderDescription
+            );
+            Transaction receiverTransaction = createTransaction(
+                    receiverWalletId,
+                    request.getAmount(),
+                    result.receiverBalance(),
+                    Transaction.TransactionType.TRANSFER_IN,
+                    receiverDescription
+            );
+            saveTransactions(List.of(senderTransaction, receiverTransaction));
 
-        return convertToTransactionResponse(transactionRepository.save(senderTransaction));
+            return convertToTransactionResponse(senderTransaction);
+        });
     }
 
     @Transactional
@@ -302,12 +481,105 @@ public class WalletService {
                 .collect(Collectors.toList());
     }
 
+    // 逐筆寫出對帳單，寫完的交易立即從持久化內容中移除，記憶體用量與筆數無關
+    public void exportStatement(Long walletId,
+                                String startDate,
+                                String endDate,
+                                StatementFormat format,
+                                OutputStream outputStream) throws IOException {
+        LocalDateTime start = LocalDate.parse(startDate).atStartOfDay();
+        LocalDateTime end = LocalDate.parse(endDate).atTime(23, 59, 59);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == StatementFormat.CSV) {
+            // BOM 讓 Excel 正確辨識中文
+            writer.write('\uFEFF');
+            writer.write("transactionId,transactionTime,transactionType,amount,balance,status,referenceId,description\n");
+        }
+
+        // 先載入錢包，串流期間每筆交易的 wallet 關聯都由持久化內容取得；
+        // 串流未讀完時在同一連線上再發查詢，驅動程式會把剩餘結果全部讀進記憶體
+        getWalletById(walletId);
+
+        try (Stream<Transaction> transactions = transactionRepository.streamStatement(walletId, start, end)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                if (format == StatementFormat.CSV) {
+                    writeCsvRow(writer, transaction);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(convertToTransactionResponse(transaction)));
+                    writer.write('\n');
+                }
+                entityManager.detach(transaction);
+
+                if (++count % STATEMENT_FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+    }
+
     public List<TransactionResponse> getTransactions(Long walletId, int page, int size) {
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("transactionTime").descending());
-        return transactionRepository.findByWalletWalletId(walletId, pageRequest)
-                .getContent()
+        return transactionRepository.findLatest(walletId, PageRequest.of(page, size))
                 .stream()
                 .map(this::convertToTransactionResponse)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(csv(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(csv(String.valueOf(transaction.getTransactionTime())));
+        writer.write(',');
+        writer.write(csv(transaction.getTransactionType().name()));
+        writer.write(',');
+        writer.write(transaction.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(transaction.getBalance().toPlainString());
+        writer.write(',');
+        writer.write(csv(transaction.getStatus() != null ? transaction.getStatus().name() : null));
+        writer.write(',');
+        writer.write(csv(transaction.getReferenceId()));
+        writer.write(',');
+        writer.write(csv(transaction.getDescription()));
+        writer.write('\n');
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public enum StatementFormat {
+        CSV, NDJSON
+    }
+
+    // 游標內容為最後一筆的 (transactionTime, transactionId)，以 Base64 包裝讓前端視為不透明字串
+    private record HistoryCursor(LocalDateTime transactionTime, String transactionId) {
+
+        private static String encode(Transaction transaction) {
+            String raw = transaction.getTransactionTime() + "|" + transaction.getTransactionId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new HistoryCursor(
+                        LocalDateTime.parse(raw.substring(0, separator)),
+                        raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new WalletException("無效的分頁游標", "INVALID_CURSOR");
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example._citizenproj2.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.model.WalletStatistics;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.example._citizenproj2.repository.WalletStatisticsRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+
+// 錢包交易統計
+// 寫入交易時同步累加每日與累計彙總，查詢只讀彙總列，不掃描交易歷史
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class WalletStatisticsService {
+
+    private final WalletStatisticsRepository statisticsRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // 須與交易紀錄在同一交易中呼叫；同批交易先在記憶體合併，每組只 upsert 一次
+    @Transactional
+    public void record(Collection<Transaction> transactions) {
+        Map<StatKey, Aggregate> aggregates = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getStatus() != Transaction.Status.COMPLETED) {
+                continue;
+            }
+            Long walletId = transaction.getWallet().getWalletId();
+            LocalDate date = transaction.getTransactionTime().toLocalDate();
+            aggregates.computeIfAbsent(new StatKey(walletId, date, transaction.getTransactionType()), key -> new Aggregate())
+                    .add(transaction.getAmount());
+            aggregates.computeIfAbsent(new StatKey(walletId, WalletStatistics.ALL_TIME, transaction.getTransactionType()), key -> new Aggregate())
+                    .add(transaction.getAmount());
+        }
+
+        // 依固定順序寫入，避免並行交易以不同順序鎖定彙總列
+        aggregates.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> statisticsRepository.accumulate(
+                        entry.getKey().walletId(),
+                        entry.getKey().date(),
+                        entry.getKey().type().name(),
+                        entry.getValue().count,
+                        entry.getValue().total,
+                        entry.getValue().min,
+                        entry.getValue().max
+                ));
+    }
+
+    public Map<String, Object> getWalletStatistics(Long walletId) {
+        List<Map<String, Object>> types = statisticsRepository.findByWalletIdAndStatDate(walletId, WalletStatistics.ALL_TIME)
+                .stream()
+                .sorted(Comparator.comparing(WalletStatistics::getTransactionType))
+                .map(this::toMap)
+                .toList();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("walletId", walletId);
+        result.put("totalCount", types.stream().mapToLong(type -> (Long) type.get("count")).sum());
+        result.put("types", types);
+        return result;
+    }
+
+    public List<Map<String, Object>> getDailyStatistics(Long walletId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, Aggregate> daily = new TreeMap<>();
+        for (WalletStatistics row : statisticsRepository.findDaily(walletId, startDate, endDate, WalletStatistics.ALL_TIME)) {
+            daily.computeIfAbsent(row.getStatDate(), key -> new Aggregate()).merge(row);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(daily.size());
+        daily.forEach((date, aggregate) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("date", date);
+            item.put("count", aggregate.count);
+            item.put("totalAmount", aggregate.total);
+            result.add(item);
+        });
+        return result;
+    }
+
+    public List<Map<String, Object>> getTypeStatistics(Long walletId, LocalDate startDate, LocalDate endDate) {
+        Map<Transaction.TransactionType, Aggregate> byType = new EnumMap<>(Transaction.TransactionType.class);
+        for (WalletStatistics row : statisticsRepository.findDaily(walletId, startDate, endDate, WalletStatistics.ALL_TIME)) {
+            byType.computeIfAbsent(row.getTransactionType(), key -> new Aggregate()).merge(row);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(byType.size());
+        byType.forEach((type, aggregate) -> result.add(toMap(type, aggregate)));
+        return result;
+    }
+
+    // 彙總上線前已有交易的錢包，啟動時由交易歷史補建；每個錢包各自一個交易
+    // 須早於 DailyLimitService.rebuild，每日限額計數由當日彙總重建
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfill() {
+        List<Long> walletIds = statisticsRepository.findWalletIdsNeedingRebuild(WalletStatistics.ALL_TIME);
+        int rebuilt = 0;
+        for (Long walletId : walletIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebuild(walletId));
+                rebuilt++;
+            } catch (RuntimeException e) {
+                log.error("錢包 {} 的統計彙總重建失敗", walletId, e);
+            }
+        }
+        if (!walletIds.isEmpty()) {
+            log.info("已重建 {}/{} 個錢包的統計彙總", rebuilt, walletIds.size());
+        }
+    }
+
+    // 由交易歷史重建單一錢包的彙總
+    // 先鎖住錢包列，已更新餘額但尚未提交的交易會先完成，不會漏算或在重建後重複累加
+    @Transactional
+    public void rebuild(Long walletId) {
+        walletRepository.lockById(walletId);
+        statisticsRepository.deleteByWalletId(walletId);
+        statisticsRepository.rebuildDaily(walletId);
+        statisticsRepository.rebuildAllTime(walletId, WalletStatistics.ALL_TIME);
+    }
+
+    private Map<String, Object> toMap(WalletStatistics row) {
+        Aggregate aggregate = new Aggregate();
+        aggregate.merge(row);
+        return toMap(row.getTransactionType(), aggregate);
+    }
+
+    private Map<String, Object> toMap(Transaction.TransactionType type, Aggregate aggregate) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", type);
+        item.put("count", aggregate.count);
+        item.put("totalAmount", aggregate.total);
+        item.put("minAmount", aggregate.min);
+        item.put("maxAmount", aggregate.max);
+        item.put("avgAmount", aggregate.total.divide(BigDecimal.valueOf(aggregate.count), 2, RoundingMode.HALF_UP));
+        return item;
+    }
+
+    private record StatKey(Long walletId, LocalDate date, Transaction.TransactionType type)
+            implements Comparable<StatKey> {
+
+        private static final Comparator<StatKey> ORDER = Comparator.comparing(StatKey::walletId)
+                .thenComparing(StatKey::date)
+                .thenComparing(StatKey::type);
+
+        @Override
+        public int compareTo(StatKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class Aggregate {
+        private long count;
+        private BigDecimal total = BigDecimal.ZERO;
+        private BigDecimal min;
+        private BigDecimal max;
+
+        private void add(BigDecimal amount) {
+            count++;
+            total = total.add(amount);
+            min = min == null ? amount : min.min(amount);
+            max = max == null ? amount : max.max(amount);
+        }
+
+        private void merge(WalletStatistics row) {
+            count += row.getTransactionCount();
+            total = total.add(row.getTotalAmount());
+            min = min == null ? row.getMinAmount() : min.min(row.getMinAmount());
+            max = max == null ? row.getMaxAmount() : max.max(row.getMaxAmount());
+        }
+    }
+}
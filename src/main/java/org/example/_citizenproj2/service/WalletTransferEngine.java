@@ -0,0 +1,143 @@
+package org.example._citizenproj2.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.example._citizenproj2.exception.InsufficientBalanceException;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 雙錢包轉帳
+// 兩個錢包以單一 UPDATE ... CASE 更新，InnoDB 依主鍵順序掃描並鎖定，所有轉帳都以 walletId 由小到大取得鎖，
+// A→B 與 B→A 同時進行也不會互相等待成死結；多錢包扣款同理
+@Service
+@RequiredArgsConstructor
+public class WalletTransferEngine {
+
+    private final WalletRepository walletRepository;
+    private final EntityManager entityManager;
+
+    // 回傳轉帳後雙方的餘額與版本
+    @Transactional
+    public TransferResult transfer(Long fromWalletId, Long toWalletId, BigDecimal amount) {
+        if (fromWalletId.equals(toWalletId)) {
+            throw new WalletException("不能轉帳給自己");
+        }
+        if (amount.signum() <= 0) {
+            throw new WalletException("轉帳金額必須大於0");
+        }
+
+        int updated = walletRepository.transferBalance(fromWalletId, toWalletId, amount, LocalDateTime.now());
+        if (updated != 2) {
+            // 交易回滾時一併撤銷已更新的那一列
+            throw rejection(fromWalletId, toWalletId, amount);
+        }
+
+        // 兩列仍由本交易鎖定，讀到的就是轉帳後的餘額
+        Map<Long, WalletBalanceUpdater.BalanceUpdate> balances = new HashMap<>();
+        for (Map<String, Object> row : walletRepository.findBalances(List.of(fromWalletId, toWalletId))) {
+            balances.put((Long) row.get("walletId"), new WalletBalanceUpdater.BalanceUpdate(
+                    (BigDecimal) row.get("balance"), (Long) row.get("version")));
+        }
+        return new TransferResult(balances.get(fromWalletId), balances.get(toWalletId));
+    }
+
+    // 多錢包同時扣款（團體分攤付款）：一次 UPDATE ... CASE walletId 扣除各錢包的金額，
+    // 任一錢包停用或餘額不足時整批不成立；回傳各錢包扣款後的餘額與版本
+    @Transactional
+    public Map<Long, WalletBalanceUpdater.BalanceUpdate> debitAll(Map<Long, BigDecimal> amountsByWallet) {
+        if (amountsByWallet.values().stream().anyMatch(amount -> amount.signum() <= 0)) {
+            throw new WalletException("扣款金額必須大於0");
+        }
+        Map<Long, BigDecimal> amounts = new TreeMap<>(amountsByWallet);
+
+        StringBuilder amountCase = new StringBuilder("CASE w.walletId");
+        for (int i = 0; i < amounts.size(); i++) {
+            amountCase.append(" WHEN :wallet").append(i).append(" THEN :amount").append(i);
+        }
+        amountCase.append(" END");
+
+        Query update = entityManager.createQuery("UPDATE Wallet w SET " +
+                "w.balance = w.balance - " + amountCase + ", " +
+                "w.totalSpent = w.totalSpent + " + amountCase + ", " +
+                "w.lastTransactionTime = :now, " +
+                "w.updatedAt = :now, " +
+                "w.version = w.version + 1 " +
+                "WHERE w.walletId IN :walletIds " +
+                "AND w.walletStatus = 'ACTIVE' " +
+                "AND w.balance >= " + amountCase);
+        int index = 0;
+        for (Map.Entry<Long, BigDecimal> entry : amounts.entrySet()) {
+            update.setParameter("wallet" + index, entry.getKey());
+            update.setParameter("amount" + index, entry.getValue());
+            index++;
+        }
+        update.setParameter("walletIds", new ArrayList<>(amounts.keySet()));
+        update.setParameter("now", LocalDateTime.now());
+
+        if (update.executeUpdate() != amounts.size()) {
+            // 交易回滾時一併撤銷已扣款的錢包
+            throw rejection(amounts);
+        }
+
+        Map<Long, WalletBalanceUpdater.BalanceUpdate> balances = new HashMap<>();
+        for (Map<String, Object> row : walletRepository.findBalances(amounts.keySet())) {
+            balances.put((Long) row.get("walletId"), new WalletBalanceUpdater.BalanceUpdate(
+                    (BigDecimal) row.get("balance"), (Long) row.get("version")));
+        }
+        return balances;
+    }
+
+    // 只在扣款失敗時逐一檢查，找出停用或餘額不足的錢包
+    private RuntimeException rejection(Map<Long, BigDecimal> amounts) {
+        for (Map.Entry<Long, BigDecimal> entry : amounts.entrySet()) {
+            Map<String, Object> snapshot = walletRepository.findBalanceSnapshot(entry.getKey())
+                    .orElseThrow(() -> new WalletException("錢包不存在"));
+            if (snapshot.get("walletStatus") != Wallet.WalletStatus.ACTIVE) {
+                return new WalletException("錢包狀態不可用");
+            }
+            BigDecimal balance = (BigDecimal) snapshot.get("balance");
+            if (balance.compareTo(entry.getValue()) < 0) {
+                return new InsufficientBalanceException(
+                        String.format("餘額不足。當前餘額: %s, 需要金額: %s", balance, entry.getValue()),
+                        balance,
+                        entry.getValue()
+                );
+            }
+        }
+        return WalletException.walletConflict();
+    }
+
+    private RuntimeException rejection(Long fromWalletId, Long toWalletId, BigDecimal amount) {
+        Map<String, Object> sender = walletRepository.findBalanceSnapshot(fromWalletId)
+                .orElseThrow(() -> new WalletException("錢包不存在"));
+        Map<String, Object> receiver = walletRepository.findBalanceSnapshot(toWalletId)
+                .orElseThrow(() -> new WalletException("收款方錢包不存在"));
+
+        if (sender.get("walletStatus") != Wallet.WalletStatus.ACTIVE
+                || receiver.get("walletStatus") != Wallet.WalletStatus.ACTIVE) {
+            return new WalletException("錢包狀態不可用");
+        }
+        BigDecimal balance = (BigDecimal) sender.get("balance");
+        return new InsufficientBalanceException(
+                String.format("餘額不足。當前餘額: %s, 需要金額: %s", balance, amount),
+                balance,
+                amount
+        );
+    }
+
+    public record TransferResult(WalletBalanceUpdater.BalanceUpdate senderBalance,
+                                 WalletBalanceUpdater.BalanceUpdate receiverBalance) {
+    }
+}
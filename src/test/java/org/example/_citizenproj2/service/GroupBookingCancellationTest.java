@@ -0,0 +1,192 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.dto.request.GroupBookingRequest;
+import org.example._citizenproj2.exception.InsufficientBalanceException;
+import org.example._citizenproj2.model.*;
+import org.example._citizenproj2.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 團體分攤付款整批扣款；取消團體訂單時，每個付款人退回自己支付的金額
+@SpringBootTest
+@ActiveProfiles("h2")
+class GroupBookingCancellationTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private MovieCategoryRepository categoryRepository;
+
+    @Autowired
+    private ShowingRepository showingRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long showingId;
+    private final List<Long> seatIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+    private final List<Long> walletIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        transactionTemplate.executeWithoutResult(status -> {
+            MovieCategory category = new MovieCategory();
+            category.setCategoryName("團體" + suffix);
+            category = categoryRepository.save(category);
+
+            Movie movie = new Movie();
+            movie.setMovieName("團體電影" + suffix);
+            movie.setDirector("導演");
+            movie.setDuration(120);
+            movie.setReleaseDate(Date.valueOf(LocalDate.now().minusDays(1)));
+            movie.setCategory(category);
+            movie.setMovieStatus(Movie.MovieStatus.SHOWING);
+            movie = movieRepository.save(movie);
+
+            Venue venue = new Venue();
+            venue.setVenueName("影廳" + suffix);
+            venue.setTheaterNumber("G" + suffix);
+            venue.setSeatRows(1);
+            venue.setSeatColumns(2);
+            venue.setTotalCapacity(2);
+            entityManager.persist(venue);
+
+            for (int column = 1; column <= 2; column++) {
+                Seat seat = new Seat();
+                seat.setVenue(venue);
+                seat.setRowNumber("A");
+                seat.setColumnNumber(column);
+                seat.setSeatType(Seat.SeatType.REGULAR);
+                seat.setStatus(Seat.Status.ACTIVE);
+                entityManager.persist(seat);
+                seatIds.add(seat.getSeatId());
+            }
+
+            Showing showing = new Showing();
+            showing.setMovie(movie);
+            showing.setVenue(venue);
+            showing.setShowDate(LocalDate.now().plusDays(1));
+            showing.setStartTime(LocalTime.of(10, 0));
+            showing.setEndTime(LocalTime.of(12, 0));
+            showing.setBasePrice(new BigDecimal("300.00"));
+            showing.setAvailableSeats(2);
+            showing.setShowingStatus(Showing.ShowingStatus.AVAILABLE);
+            showingId = showingRepository.save(showing).getShowingId();
+
+            for (int i = 0; i < 2; i++) {
+                Member member = new Member();
+                member.setEmail("group-" + i + "-" + suffix + "@example.com");
+                member.setPassword("password");
+                member.setPhone("09" + i + suffix);
+                member.setBirthday(LocalDate.of(1990, 1, 1));
+                member.setRole(Member.Role.USER);
+                member = memberRepository.save(member);
+                memberIds.add(member.getMemberId());
+
+                Wallet wallet = new Wallet();
+                wallet.setMember(member);
+                wallet.setBalance(INITIAL_BALANCE);
+                wallet.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+                walletIds.add(walletRepository.save(wallet).getWalletId());
+            }
+        });
+    }
+
+    @Test
+    void splitPaymentIsRefundedToEachPayer() {
+        String bookingId = bookingService.createGroupBooking(request(true)).getBookingId();
+
+        // 全票 300 與兒童票 150 各自扣款
+        assertThat(walletService.getBalance(walletIds.get(0))).isEqualByComparingTo("700.00");
+        assertThat(walletService.getBalance(walletIds.get(1))).isEqualByComparingTo("850.00");
+
+        bookingService.cancelBooking(bookingId);
+
+        assertThat(walletService.getBalance(walletIds.get(0))).isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(walletService.getBalance(walletIds.get(1))).isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    @Test
+    void organizerPaymentIsRefundedToOrganizer() {
+        String bookingId = bookingService.createGroupBooking(request(false)).getBookingId();
+
+        assertThat(walletService.getBalance(walletIds.get(0))).isEqualByComparingTo("550.00");
+
+        bookingService.cancelBooking(bookingId);
+
+        assertThat(walletService.getBalance(walletIds.get(0))).isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(walletService.getBalance(walletIds.get(1))).isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    @Test
+    void splitPaymentIsRejectedWhenAnyPayerIsShort() {
+        transactionTemplate.executeWithoutResult(status ->
+                walletRepository.findById(walletIds.get(1)).orElseThrow().setBalance(new BigDecimal("100.00")));
+
+        assertThatThrownBy(() -> bookingService.createGroupBooking(request(true)))
+                .isInstanceOf(InsufficientBalanceException.class);
+
+        // 整批扣款不成立，餘額足夠的付款人也不會被扣款
+        assertThat(walletService.getBalance(walletIds.get(0))).isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(walletService.getBalance(walletIds.get(1))).isEqualByComparingTo("100.00");
+    }
+
+    private GroupBookingRequest request(boolean splitPayment) {
+        return GroupBookingRequest.builder()
+                .showingId(showingId)
+                .organizerId(memberIds.get(0))
+                .minMembers(2)
+                .maxMembers(2)
+                .expiryTime(LocalDateTime.now().plusHours(1))
+                .preferredSeatIds(seatIds)
+                .splitPayment(splitPayment)
+                .members(List.of(
+                        GroupBookingRequest.GroupMemberRequest.builder()
+                                .memberId(memberIds.get(0))
+                                .ticketType("ADULT")
+                                .build(),
+                        GroupBookingRequest.GroupMemberRequest.builder()
+                                .memberId(memberIds.get(1))
+                                .ticketType("CHILD")
+                                .build()))
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package org.example._citizenproj2.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 隨機編號與時間遞增編號的寫入吞吐量比較，需連線實際資料庫
+// 執行：mvn test -Dtest=IdGeneratorBenchmarkTest -Dbenchmark=true
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdGeneratorBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 250_000;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTables() {
+        for (String table : List.of("id_bench_random", "id_bench_ordered")) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+            jdbcTemplate.execute("CREATE TABLE " + table
+                    + " (id VARCHAR(50) PRIMARY KEY, payload VARCHAR(200)) ENGINE=InnoDB");
+        }
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS id_bench_random");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS id_bench_ordered");
+    }
+
+    // 只記錄兩者的吞吐量，快慢取決於資料量與緩衝池大小，不作為斷言
+    @Test
+    void compareRandomAndOrderedIdInsertThroughput() {
+        // 舊寫法的編號空間只有 32 位元，插入時略過重複值
+        long randomMillis = insert("id_bench_random",
+                () -> "TXN" + UUID.randomUUID().toString().substring(0, 8));
+        long orderedMillis = insert("id_bench_ordered",
+                () -> idGenerator.nextId(IdGenerator.TRANSACTION_PREFIX));
+
+        log.info("random ids: {} rows in {} ms ({} rows/s)",
+                ROWS, randomMillis, Math.round(ROWS * 1000.0 / randomMillis));
+        log.info("ordered ids: {} rows in {} ms ({} rows/s)",
+                ROWS, orderedMillis, Math.round(ROWS * 1000.0 / orderedMillis));
+
+        // 遞增編號不會重複，每一列都寫入
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM id_bench_ordered", Long.class))
+                .isEqualTo(ROWS);
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndOrderedPerThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> ids = new ArrayList<>(IDS_PER_THREAD);
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids.add(idGenerator.nextId(IdGenerator.BOOKING_PREFIX));
+                }
+                return ids;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        Set<String> all = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            List<String> ids = future.get(1, TimeUnit.MINUTES);
+            for (int i = 1; i < ids.size(); i++) {
+                assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+            }
+            all.addAll(ids);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        log.info("{} ids in {} ms", THREADS * IDS_PER_THREAD, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        assertThat(all).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    private long insert(String table, Supplier<String> ids) {
+        String sql = "INSERT IGNORE INTO " + table + " (id, payload) VALUES (?, ?)";
+        long startedAt = System.nanoTime();
+        for (int offset = 0; offset < ROWS; offset += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new Object[]{ids.get(), "payload-" + (offset + i)});
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+}
@@ -0,0 +1,295 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.model.*;
+import org.example._citizenproj2.repository.*;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 各列表端點的 SQL 語句數，漏掉實體圖或出現逐筆延遲載入時測試失敗
+// 以 H2 記憶體資料庫執行，只計算呼叫端執行緒送出的語句
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MariaDB;DB_CLOSE_DELAY=-1;NON_KEYWORDS=CAST",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.example._citizenproj2.service.QueryCountTest$StatementCounter"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryCountTest {
+
+    // 每種資料筆數需大於分頁大小，確保分頁會執行 COUNT 查詢
+    private static final int ROWS = 6;
+    private static final PageRequest PAGE = PageRequest.of(0, 4);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MovieSearchIndex movieSearchIndex;
+
+    @Autowired
+    private MovieCatalogCache movieCatalogCache;
+
+    @Autowired
+    private MovieCategoryRepository categoryRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ShowingRepository showingRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> movieIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+    private Long categoryId;
+    private Long walletId;
+    private String bookingId;
+
+    @BeforeAll
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<MovieCategory> categories = new ArrayList<>();
+            List<Venue> venues = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                MovieCategory category = new MovieCategory();
+                category.setCategoryName("類別" + i);
+                categories.add(categoryRepository.save(category));
+
+                Venue venue = new Venue();
+                venue.setVenueName("影廳" + i);
+                venue.setTheaterNumber("T" + i);
+                venue.setSeatRows(10);
+                venue.setSeatColumns(10);
+                venue.setTotalCapacity(100);
+                entityManager.persist(venue);
+                venues.add(venue);
+            }
+            categoryId = categories.get(0).getCategoryId();
+
+            for (int i = 0; i < ROWS; i++) {
+                Member member = new Member();
+                member.setEmail("query-" + i + "@example.com");
+                member.setPassword("password");
+                member.setPhone("0900" + i);
+                member.setBirthday(LocalDate.of(1990, 1, 1));
+                member.setRole(Member.Role.USER);
+                member = memberRepository.save(member);
+                memberIds.add(member.getMemberId());
+
+                Wallet wallet = new Wallet();
+                wallet.setMember(member);
+                wallet.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+                wallet = walletRepository.save(wallet);
+                if (walletId == null) {
+                    walletId = wallet.getWalletId();
+                }
+            }
+
+            // 正在上映與即將上映各半，類別與影廳各不相同，逐筆載入時語句數會隨筆數增加
+            for (int i = 0; i < ROWS * 2; i++) {
+                boolean showing = i % 2 == 0;
+                Movie movie = new Movie();
+                movie.setMovieName("電影" + i);
+                movie.setDirector("導演" + i);
+                movie.setDuration(120);
+                movie.setReleaseDate(Date.valueOf(LocalDate.now().plusDays(showing ? -10 - i : 10 + i)));
+                movie.setCategory(i < ROWS ? categories.get(0) : categories.get(i % ROWS));
+                movie.setMovieStatus(showing ? Movie.MovieStatus.SHOWING : Movie.MovieStatus.COMING);
+                movieIds.add(movieRepository.save(movie).getMovieId());
+            }
+
+            Movie movie = movieRepository.getReferenceById(movieIds.get(0));
+            for (int i = 0; i < ROWS; i++) {
+                Showing showing = new Showing();
+                showing.setMovie(movie);
+                showing.setVenue(venues.get(i));
+                showing.setShowDate(LocalDate.now().plusDays(1));
+                showing.setStartTime(LocalTime.of(10 + i, 0));
+                showing.setEndTime(LocalTime.of(12 + i, 0));
+                showing.setBasePrice(new BigDecimal("300.00"));
+                showing.setAvailableSeats(100);
+                showing.setShowingStatus(Showing.ShowingStatus.AVAILABLE);
+                showing = showingRepository.save(showing);
+
+                Member member = memberRepository.getReferenceById(memberIds.get(i));
+                Booking booking = new Booking();
+                booking.setBookingId("BK-QUERY-" + i);
+                booking.setMember(memberRepository.getReferenceById(memberIds.get(0)));
+                booking.setShowing(showing);
+                booking.setTotalAmount(new BigDecimal("300.00"));
+                bookingRepository.save(booking);
+
+                Rating rating = new Rating();
+                rating.setMovie(movie);
+                rating.setMember(member);
+                rating.setRating(new BigDecimal("4.0"));
+                rating.setCreatedAt(LocalDateTime.now());
+                ratingRepository.save(rating);
+
+                Transaction transaction = new Transaction();
+                transaction.setTransactionId("TXN-QUERY-" + i);
+                transaction.setWallet(walletRepository.getReferenceById(walletId));
+                transaction.setAmount(new BigDecimal("100.00"));
+                transaction.setBalance(new BigDecimal("100.00"));
+                transaction.setTransactionType(Transaction.TransactionType.DEPOSIT);
+                transaction.setTransactionTime(LocalDateTime.now().minusMinutes(i));
+                transactionRepository.save(transaction);
+            }
+            bookingId = "BK-QUERY-0";
+        });
+        movieSearchIndex.rebuild();
+    }
+
+    @BeforeEach
+    void evictCaches() {
+        // 從冷快取計算，避免二級快取與電影目錄快取掩蓋逐筆查詢
+        entityManagerFactory.getCache().evictAll();
+        movieIds.forEach(movieId -> movieCatalogCache.evictAfterCommit(
+                new MovieCatalogCache.CatalogEntry(movieId, Movie.MovieStatus.SHOWING, null, categoryId), null));
+    }
+
+    @Test
+    void memberBookings() {
+        assertThat(count(() -> bookingService.getMemberBookings(memberIds.get(0), 0, PAGE.getPageSize())))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void bookingById() {
+        assertThat(count(() -> bookingService.getBookingById(bookingId))).isEqualTo(1);
+    }
+
+    @Test
+    void currentlyShowingMovies() {
+        assertThat(count(() -> movieService.getCurrentlyShowingMovies(PAGE))).isEqualTo(2);
+    }
+
+    @Test
+    void upcomingMovies() {
+        assertThat(count(() -> movieService.getUpcomingMovies(PAGE))).isEqualTo(2);
+    }
+
+    @Test
+    void moviesByCategory() {
+        assertThat(count(() -> movieService.getMoviesByCategory(categoryId, PAGE))).isEqualTo(2);
+    }
+
+    @Test
+    void filteredMovies() {
+        assertThat(count(() -> movieService.searchMovies(null, null, Movie.MovieStatus.COMING, null, PAGE)))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void keywordSearch() {
+        // 排名由索引計算，只載入當頁電影
+        assertThat(count(() -> movieService.searchByKeyword("電影", PAGE))).isEqualTo(1);
+    }
+
+    @Test
+    void movieById() {
+        assertThat(count(() -> movieService.getMovie(movieIds.get(1)))).isEqualTo(1);
+    }
+
+    @Test
+    void movieShowings() {
+        assertThat(count(() -> movieService.getMovieShowings(movieIds.get(0)))).isEqualTo(1);
+    }
+
+    @Test
+    void movieRatings() {
+        assertThat(count(() -> movieService.getMovieRatings(movieIds.get(0), PAGE))).isEqualTo(2);
+    }
+
+    @Test
+    void members() {
+        assertThat(count(() -> memberService.getAllMembers(PAGE))).isEqualTo(2);
+    }
+
+    @Test
+    void walletTransactions() {
+        assertThat(count(() -> walletService.getTransactions(walletId, 0, PAGE.getPageSize()))).isEqualTo(1);
+    }
+
+    private int count(Runnable action) {
+        StatementCounter.reset();
+        action.run();
+        return StatementCounter.get();
+    }
+
+    // 由 Hibernate 以類別名稱建立，計數存於執行緒中，背景排程的查詢不列入
+    public static class StatementCounter implements StatementInspector {
+
+        private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static int get() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
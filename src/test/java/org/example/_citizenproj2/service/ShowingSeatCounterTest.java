@@ -0,0 +1,128 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.model.*;
+import org.example._citizenproj2.repository.MovieCategoryRepository;
+import org.example._citizenproj2.repository.MovieRepository;
+import org.example._citizenproj2.repository.ShowingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 合併後的座位增量與對帳結果寫入場次的剩餘座位數與狀態
+@SpringBootTest
+@ActiveProfiles("h2")
+class ShowingSeatCounterTest {
+
+    private static final int CAPACITY = 10;
+
+    @Autowired
+    private ShowingSeatCounter showingSeatCounter;
+
+    @Autowired
+    private MovieCategoryRepository categoryRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ShowingRepository showingRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long showingId;
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        showingId = transactionTemplate.execute(status -> {
+            MovieCategory category = new MovieCategory();
+            category.setCategoryName("座位" + suffix);
+            category = categoryRepository.save(category);
+
+            Movie movie = new Movie();
+            movie.setMovieName("座位電影" + suffix);
+            movie.setDirector("導演");
+            movie.setDuration(120);
+            movie.setReleaseDate(Date.valueOf(LocalDate.now().minusDays(1)));
+            movie.setCategory(category);
+            movie.setMovieStatus(Movie.MovieStatus.SHOWING);
+            movie = movieRepository.save(movie);
+
+            Venue venue = new Venue();
+            venue.setVenueName("影廳" + suffix);
+            venue.setTheaterNumber("S" + suffix);
+            venue.setSeatRows(2);
+            venue.setSeatColumns(5);
+            venue.setTotalCapacity(CAPACITY);
+            entityManager.persist(venue);
+
+            Showing showing = new Showing();
+            showing.setMovie(movie);
+            showing.setVenue(venue);
+            showing.setShowDate(LocalDate.now().plusDays(1));
+            showing.setStartTime(LocalTime.of(10, 0));
+            showing.setEndTime(LocalTime.of(12, 0));
+            showing.setBasePrice(new BigDecimal("300.00"));
+            showing.setAvailableSeats(CAPACITY);
+            showing.setShowingStatus(Showing.ShowingStatus.AVAILABLE);
+            return showingRepository.save(showing).getShowingId();
+        });
+    }
+
+    @Test
+    void flushWritesMergedDeltaAndStatus() {
+        showingSeatCounter.seatsBooked(showingId, 5);
+        showingSeatCounter.seatsBooked(showingId, 4);
+        showingSeatCounter.flush();
+
+        Showing showing = reload();
+        assertThat(showing.getAvailableSeats()).isEqualTo(1);
+        assertThat(showing.getShowingStatus()).isEqualTo(Showing.ShowingStatus.ALMOST_FULL);
+
+        showingSeatCounter.seatsBooked(showingId, 1);
+        showingSeatCounter.flush();
+
+        showing = reload();
+        assertThat(showing.getAvailableSeats()).isZero();
+        assertThat(showing.getShowingStatus()).isEqualTo(Showing.ShowingStatus.FULL);
+    }
+
+    @Test
+    void reconcileRestoresCountFromBookings() {
+        showingSeatCounter.seatsBooked(showingId, 3);
+        showingSeatCounter.flush();
+        assertThat(reload().getAvailableSeats()).isEqualTo(CAPACITY - 3);
+
+        // 沒有任何訂單明細，對帳後恢復為全空
+        showingSeatCounter.reconcile();
+
+        Showing showing = reload();
+        assertThat(showing.getAvailableSeats()).isEqualTo(CAPACITY);
+        assertThat(showing.getShowingStatus()).isEqualTo(Showing.ShowingStatus.AVAILABLE);
+    }
+
+    private Showing reload() {
+        return transactionTemplate.execute(status -> {
+            Showing showing = showingRepository.findById(showingId).orElseThrow();
+            entityManager.refresh(showing);
+            return showing;
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Member;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.repository.MemberRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 版本衝突時整筆錢包交易回滾，於交易外重試；在呼叫端交易中則不重試
+@SpringBootTest
+@ActiveProfiles("h2")
+class WalletBalanceUpdaterTest {
+
+    @Autowired
+    private WalletBalanceUpdater walletBalanceUpdater;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long walletId;
+
+    @BeforeEach
+    void createWallet() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Member member = new Member();
+        member.setEmail("updater-" + suffix + "@example.com");
+        member.setPassword("password");
+        member.setPhone("09" + suffix);
+        member.setBirthday(LocalDate.of(1990, 1, 1));
+        member.setRole(Member.Role.USER);
+        member = memberRepository.save(member);
+
+        Wallet wallet = new Wallet();
+        wallet.setMember(member);
+        wallet.setBalance(new BigDecimal("100.00"));
+        wallet.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+        walletId = walletRepository.save(wallet).getWalletId();
+    }
+
+    @Test
+    void conflictRollsBackAndRetriesInNewTransaction() {
+        AtomicInteger calls = new AtomicInteger();
+
+        WalletBalanceUpdater.BalanceUpdate update = walletBalanceUpdater.inTransaction(() -> {
+            assertThat(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel())
+                    .isEqualTo(TransactionDefinition.ISOLATION_READ_COMMITTED);
+            WalletBalanceUpdater.BalanceUpdate applied = walletBalanceUpdater.apply(walletId,
+                    WalletBalanceUpdater.BalanceChange.deposit(new BigDecimal("10.00")));
+            if (calls.incrementAndGet() == 1) {
+                throw WalletException.walletConflict();
+            }
+            return applied;
+        });
+
+        // 第一次的入帳已隨交易回滾，只入帳一次
+        assertThat(calls).hasValue(2);
+        assertThat(update.balance()).isEqualByComparingTo("110.00");
+        assertThat(walletRepository.findBalanceById(walletId)).hasValueSatisfying(
+                balance -> assertThat(balance).isEqualByComparingTo("110.00"));
+    }
+
+    @Test
+    void conflictInsideCallerTransactionIsNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                walletBalanceUpdater.inTransaction(() -> {
+                    calls.incrementAndGet();
+                    throw WalletException.walletConflict();
+                })))
+                .isInstanceOf(WalletException.class);
+
+        assertThat(calls).hasValue(1);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.dto.response.TransactionResponse;
+import org.example._citizenproj2.exception.WalletException;
+import org.example._citizenproj2.model.Member;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.model.WalletCredit;
+import org.example._citizenproj2.repository.MemberRepository;
+import org.example._citizenproj2.repository.TransactionRepository;
+import org.example._citizenproj2.repository.WalletCreditRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 佇列入帳：待入帳項目於呼叫端提交，寫入時新增 COMPLETED 交易紀錄並移除項目；無法寫入的一筆標記 FAILED，不影響其他入帳
+@SpringBootTest
+@ActiveProfiles("h2")
+class WalletMailboxTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1.00");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletCreditRepository walletCreditRepository;
+
+    private Long walletId;
+
+    @BeforeEach
+    void createWallet() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Member member = new Member();
+        member.setEmail("mailbox-" + suffix + "@example.com");
+        member.setPassword("password");
+        member.setPhone("09" + suffix);
+        member.setBirthday(LocalDate.of(1990, 1, 1));
+        member.setRole(Member.Role.USER);
+        member = memberRepository.save(member);
+
+        Wallet wallet = new Wallet();
+        wallet.setMember(member);
+        wallet.setBalance(INITIAL_BALANCE);
+        wallet.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+        walletId = walletRepository.save(wallet).getWalletId();
+    }
+
+    @Test
+    void creditCompletesWithItsOwnTransaction() throws Exception {
+        TransactionResponse response = walletService.credit(walletId, new BigDecimal("100.00"),
+                Transaction.TransactionType.REFUND, "退款", "BK-MAILBOX").get(10, TimeUnit.SECONDS);
+
+        assertThat(response.getStatus()).isEqualTo(Transaction.Status.COMPLETED.toString());
+        assertThat(response.getBalance()).isEqualByComparingTo("101.00");
+        assertThat(transactionRepository.findById(response.getTransactionId()).orElseThrow().getStatus())
+                .isEqualTo(Transaction.Status.COMPLETED);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("101.00");
+        assertThat(walletCreditRepository.findById(response.getTransactionId())).isEmpty();
+    }
+
+    @Test
+    void failingCreditIsMarkedFailedWithoutBlockingOthers() throws Exception {
+        // 入帳後餘額超出欄位精度，每次寫入都會失敗
+        CompletableFuture<TransactionResponse> poison = walletService.credit(walletId,
+                new BigDecimal("9999999999999.99"), Transaction.TransactionType.REFUND, "退款", "BK-POISON");
+        CompletableFuture<TransactionResponse> credit = walletService.credit(walletId,
+                new BigDecimal("50.00"), Transaction.TransactionType.REFUND, "退款", "BK-OK");
+
+        assertThat(credit.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(Transaction.Status.COMPLETED.toString());
+        assertThatThrownBy(() -> poison.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(WalletException.class);
+
+        // 失敗的入帳不寫入帳本，只在待入帳項目標記 FAILED
+        assertThat(transactionRepository.findByReferenceId("BK-POISON")).isEmpty();
+        assertThat(walletCreditRepository.findAll())
+                .filteredOn(pending -> "BK-POISON".equals(pending.getReferenceId()))
+                .extracting(WalletCredit::getStatus)
+                .containsExactly(WalletCredit.Status.FAILED);
+        assertThat(walletService.getBalance(walletId)).isEqualByComparingTo("51.00");
+        assertThat(walletCreditRepository.findByStatusOrderByCreatedAt(WalletCredit.Status.PENDING)).isEmpty();
+    }
+}
@@ -0,0 +1,117 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.model.Member;
+import org.example._citizenproj2.model.Transaction;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.repository.MemberRepository;
+import org.example._citizenproj2.repository.TransactionRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 統計彙總：同一組 (錢包, 日期, 類型) 以 upsert 累加；既有交易由啟動補建重建彙總
+@SpringBootTest
+@ActiveProfiles("h2")
+class WalletStatisticsServiceTest {
+
+    @Autowired
+    private WalletStatisticsService walletStatisticsService;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Wallet wallet;
+
+    @BeforeEach
+    void createWallet() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Member member = new Member();
+        member.setEmail("statistics-" + suffix + "@example.com");
+        member.setPassword("password");
+        member.setPhone("09" + suffix);
+        member.setBirthday(LocalDate.of(1990, 1, 1));
+        member.setRole(Member.Role.USER);
+        member = memberRepository.save(member);
+
+        Wallet created = new Wallet();
+        created.setMember(member);
+        created.setBalance(BigDecimal.ZERO);
+        created.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+        wallet = walletRepository.save(created);
+    }
+
+    @Test
+    void recordAccumulatesIntoExistingRows() {
+        walletStatisticsService.record(List.of(deposit("100.00"), deposit("30.00")));
+        walletStatisticsService.record(List.of(deposit("250.00")));
+
+        Map<String, Object> type = onlyType(walletStatisticsService.getWalletStatistics(wallet.getWalletId()));
+        assertThat(type.get("count")).isEqualTo(3L);
+        assertThat((BigDecimal) type.get("totalAmount")).isEqualByComparingTo("380.00");
+        assertThat((BigDecimal) type.get("minAmount")).isEqualByComparingTo("30.00");
+        assertThat((BigDecimal) type.get("maxAmount")).isEqualByComparingTo("250.00");
+
+        LocalDate today = LocalDate.now();
+        assertThat(walletStatisticsService.getDailyStatistics(wallet.getWalletId(), today, today))
+                .singleElement()
+                .satisfies(day -> assertThat(day.get("count")).isEqualTo(3L));
+    }
+
+    @Test
+    void backfillRebuildsWalletsWithoutAggregates() {
+        // 上線前的交易只有紀錄，沒有彙總
+        transactionRepository.saveAll(List.of(deposit("100.00"), deposit("30.00")));
+        assertThat(walletStatisticsService.getWalletStatistics(wallet.getWalletId()).get("totalCount")).isEqualTo(0L);
+
+        walletStatisticsService.backfill();
+
+        Map<String, Object> type = onlyType(walletStatisticsService.getWalletStatistics(wallet.getWalletId()));
+        assertThat(type.get("count")).isEqualTo(2L);
+        assertThat((BigDecimal) type.get("totalAmount")).isEqualByComparingTo("130.00");
+
+        // 彙總完整的錢包不再重建，新交易照常累加
+        walletStatisticsService.backfill();
+        Transaction later = deposit("20.00");
+        transactionRepository.save(later);
+        walletStatisticsService.record(List.of(later));
+        assertThat(onlyType(walletStatisticsService.getWalletStatistics(wallet.getWalletId())).get("count"))
+                .isEqualTo(3L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> onlyType(Map<String, Object> statistics) {
+        List<Map<String, Object>> types = (List<Map<String, Object>>) statistics.get("types");
+        assertThat(types).hasSize(1);
+        return types.get(0);
+    }
+
+    private Transaction deposit(String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId("TXN-" + UUID.randomUUID().toString().substring(0, 20));
+        transaction.setWallet(wallet);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setBalance(new BigDecimal(amount));
+        transaction.setTransactionType(Transaction.TransactionType.DEPOSIT);
+        transaction.setStatus(Transaction.Status.COMPLETED);
+        transaction.setTransactionTime(LocalDateTime.now());
+        return transaction;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example._citizenproj2.service;
+
+import org.example._citizenproj2.model.Member;
+import org.example._citizenproj2.model.Wallet;
+import org.example._citizenproj2.repository.MemberRepository;
+import org.example._citizenproj2.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 雙向對稱轉帳的吞吐量測試，需連線實際資料庫
+// 執行：mvn test -Dtest=WalletTransferBenchmarkTest -Dbenchmark=true
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class WalletTransferBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private WalletTransferEngine walletTransferEngine;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    @BeforeEach
+    void createWallets() {
+        for (int i = 0; i < 2; i++) {
+            String suffix = UUID.randomUUID().toString().substring(0, 8);
+            Member member = new Member();
+            member.setEmail("bench-" + suffix + "@example.com");
+            member.setPassword("benchmark");
+            member.setPhone("09" + suffix);
+            member.setBirthday(LocalDate.of(1990, 1, 1));
+            member.setRole(Member.Role.USER);
+            member = memberRepository.save(member);
+
+            Wallet wallet = new Wallet();
+            wallet.setMember(member);
+            wallet.setBalance(INITIAL_BALANCE);
+            wallet.setTotalDeposit(INITIAL_BALANCE);
+            wallet.setTotalSpent(BigDecimal.ZERO);
+            wallet.setWalletStatus(Wallet.WalletStatus.ACTIVE);
+            wallets.add(walletRepository.save(wallet));
+        }
+    }
+
+    @AfterEach
+    void removeWallets() {
+        wallets.forEach(wallet -> {
+            walletRepository.deleteById(wallet.getWalletId());
+            memberRepository.deleteById(wallet.getMember().getMemberId());
+        });
+    }
+
+    @Test
+    void symmetricTransfersDoNotDeadlock() throws Exception {
+        Long walletA = wallets.get(0).getWalletId();
+        Long walletB = wallets.get(1).getWalletId();
+        AtomicInteger lockFailures = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            // 一半執行緒 A→B，一半 B→A
+            boolean forward = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> walletTransferEngine.transfer(
+                                forward ? walletA : walletB, forward ? walletB : walletA, AMOUNT));
+                    } catch (PessimisticLockingFailureException e) {
+                        lockFailures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        int transfers = THREADS * TRANSFERS_PER_THREAD;
+        System.out.printf("%d transfers in %d ms, %.1f transfers/s, %d lock failures%n",
+                transfers,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                transfers / (elapsedNanos / 1_000_000_000.0),
+                lockFailures.get());
+
+        BigDecimal total = walletRepository.findBalanceById(walletA).orElseThrow()
+                .add(walletRepository.findBalanceById(walletB).orElseThrow());
+        assertThat(lockFailures.get()).isZero();
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(2)));
+    }
+}